@@ -1,5 +1,10 @@
 package Application;
 
+import PhotoManaging.EventBus;
+import PhotoManaging.PhotoEvent;
+import PhotoManaging.PhotoManager;
+import javafx.beans.value.ChangeListener;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.scene.Scene;
@@ -8,6 +13,11 @@ import javafx.scene.paint.Color;
 import javafx.scene.text.Text;
 import javafx.stage.Stage;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
 /**
  * A controller which manipulates the model based on user input.
  */
@@ -17,6 +27,20 @@ public class Controller {
     private Text errorText;
     /* The model which this Controller controls */
     private DataModel model;
+    /* Subscribes to an EventBus on behalf of this Controller, once for each PhotoManager the model holds */
+    private final ArrayList<Function<EventBus, EventBus.Subscription<?>>> subscribers = new ArrayList<>();
+    /* The subscriptions of this Controller to the events of the model's current PhotoManager */
+    private final ArrayList<EventBus.Subscription<?>> subscriptions = new ArrayList<>();
+    /* Moves the subscriptions of this Controller across when the model's PhotoManager is replaced */
+    private final ChangeListener<PhotoManager> photoListListener = (observable, oldList, newList) -> {
+        cancelSubscriptions();
+        if (newList != null) {
+            for (Function<EventBus, EventBus.Subscription<?>> subscriber : subscribers) {
+                subscriptions.add(subscriber.apply(newList.getEvents()));
+            }
+        }
+        photoListChanged();
+    };
 
     /**
      * Initialize this Controller.
@@ -36,6 +60,72 @@ public class Controller {
         return this.model;
     }
 
+    /**
+     * Subscribe handler to the events of class type published by the model's PhotoManager, following the model to
+     * each new PhotoManager, until this Controller is disposed.
+     *
+     * @param type    the class of events wanted
+     * @param handler receives each batch of events on the JavaFX thread
+     * @param <E>     the class of events wanted
+     */
+    protected <E extends PhotoEvent> void subscribe(Class<E> type, Consumer<List<E>> handler) {
+        if (subscribers.isEmpty()) model.photoListProperty().addListener(photoListListener);
+        Function<EventBus, EventBus.Subscription<?>> subscriber = events -> events.subscribe(type, handler);
+        subscribers.add(subscriber);
+        if (model.getPhotoList() != null) subscriptions.add(subscriber.apply(model.getPhotoList().getEvents()));
+    }
+
+    /**
+     * Keep tags the same as the master list of tags of the model's PhotoManager, applying only the tags added and
+     * removed rather than copying the whole list on every change.
+     *
+     * @param tags the list of tags displayed by this Controller
+     */
+    protected void showTagMaster(ObservableList<String> tags) {
+        tags.setAll(model.getPhotoList().getTagMaster());
+        subscribe(PhotoEvent.TagAdded.class, events -> {
+            for (PhotoEvent.TagAdded event : events) {
+                // Check the tag is still there, since it may have been removed again since
+                if (event.getPhoto() == null && model.getPhotoList().getTagMaster().contains(event.getTag())
+                        && !tags.contains(event.getTag())) {
+                    tags.add(event.getTag());
+                }
+            }
+        });
+        subscribe(PhotoEvent.TagRemoved.class, events -> {
+            for (PhotoEvent.TagRemoved event : events) {
+                if (event.getPhoto() == null && !model.getPhotoList().getTagMaster().contains(event.getTag())) {
+                    tags.remove(event.getTag());
+                }
+            }
+        });
+    }
+
+    /**
+     * Called when the model's PhotoManager is replaced, so its Photos and tags can be displayed instead.
+     */
+    protected void photoListChanged() {
+    }
+
+    /**
+     * Stop this Controller receiving events, when the window it controls is closed.
+     */
+    public void dispose() {
+        cancelSubscriptions();
+        subscribers.clear();
+        if (model != null) model.photoListProperty().removeListener(photoListListener);
+    }
+
+    /**
+     * Cancel every subscription to the current PhotoManager's events.
+     */
+    private void cancelSubscriptions() {
+        for (EventBus.Subscription<?> subscription : subscriptions) {
+            subscription.cancel();
+        }
+        subscriptions.clear();
+    }
+
     /**
      * Displays an error message.
      */
@@ -73,6 +163,7 @@ public class Controller {
                 Scene scene = new Scene(root, width, height, Color.GREY.brighter());
                 stage.setTitle(title);
                 stage.setScene(scene);
+                stage.setOnHidden(event -> control.dispose());
                 stage.show();
             }
         } catch (Exception e) {
@@ -1,42 +1,117 @@
 package Application;
 
 import Application.PhotoList.Cell;
+import PhotoManaging.BulkJob;
+import PhotoManaging.DirectoryLoad;
 import PhotoManaging.Photo;
 import PhotoManaging.PhotoManager;
+import javafx.application.Platform;
+import javafx.beans.property.ObjectProperty;
+import javafx.beans.property.ReadOnlyObjectProperty;
+import javafx.beans.property.SimpleObjectProperty;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
 
+import java.io.IOException;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Observable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * The DataModel which is viewed by the user and manipulated by the Controllers
  */
-public class DataModel extends Observable {
+public class DataModel {
     /* The PhotoManager associated with this DataModel */
-    private PhotoManager photoList;
+    private final ObjectProperty<PhotoManager> photoList = new SimpleObjectProperty<>();
     /* The list of Cells associated with photoList */
     private final ObservableList<Cell> cells = FXCollections.observableArrayList();
     /* The current working directory for this DataModel */
     private String directory;
+    /* The loading of the Photos of photoList, or null if no directory has been opened */
+    private DirectoryLoad load;
     /* The Cell that this user currently has selected */
     private Cell currentCell;
+    /* Every Cell the user currently has selected, in the order they were selected */
+    private List<Cell> selectedCells = new ArrayList<>();
+    /* The latest change being made to many Photos at once, or null if none has been started */
+    private final ObjectProperty<BulkJob> job = new SimpleObjectProperty<>();
+    /* How many directories have been chosen, so only the latest one chosen is put in place once open */
+    private long openings;
+
+    /* The thread on which directories are opened, one at a time */
+    private static final ExecutorService OPENER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Directory opener");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * Set the working directory for the UI.
+     * <p>
+     * The previous directory's loading and BulkJob are cancelled at once, but waiting for them to stop, and recovering
+     * and opening the new directory, happen on a background thread so the UI stays responsive. The new PhotoManager
+     * is then put in place on the JavaFX thread, unless another directory has been chosen in the meantime.
      *
      * @param directory new working directory path for this DataModel
+     * @param onOpened  run on the JavaFX thread once the directory is open and loading
      */
-    public void setDirectory(String directory) throws Exception {
-        // Create a new PhotoManager for this directory
-        this.directory = directory;
-        photoList = new PhotoManager(Paths.get(directory));
-
-        // Notify all observers that this model has changed
-        setChanged();
-        notifyObservers();
+    public void setDirectory(String directory, Runnable onOpened) {
+        // Stop loading the previous directory and any change being made to it before leaving it
+        DirectoryLoad previousLoad = load;
+        BulkJob previousJob = getJob();
+        PhotoManager previous = getPhotoList();
+        if (previousLoad != null) {
+            previousLoad.cancel();
+        }
+        if (previousJob != null) {
+            previousJob.cancel();
+        }
+        long opening = ++openings;
+
+        OPENER.execute(() -> {
+            try {
+                // Both are waited for, as a job still renaming or moving files could otherwise race the recovery of
+                // the same directory, and pending changes are saved once they have stopped
+                if (previousLoad != null) {
+                    previousLoad.await();
+                }
+                if (previousJob != null) {
+                    previousJob.await();
+                }
+                if (previous != null) {
+                    previous.close();
+                }
+
+                // Create a new PhotoManager for this directory, whose Photos are added in the background as they are
+                // found and then kept in step with changes made outside the program
+                PhotoManager photoList = new PhotoManager(Paths.get(directory), false);
+                Platform.runLater(() -> {
+                    if (opening != openings) return;    // another directory was chosen while this one opened
+                    this.directory = directory;
+                    setPhotoList(photoList);
+                    load = photoList.startLoading();
+                    try {
+                        photoList.startWatching();
+                    } catch (IOException e) {
+                        e.printStackTrace();    // the directory is still shown, just not kept in step
+                    }
+                    onOpened.run();
+                });
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+    }
+
+    /**
+     * Get the loading of the Photos of the working directory, which can be cancelled.
+     *
+     * @return this DataModel's DirectoryLoad, or null if no directory has been opened
+     */
+    public DirectoryLoad getLoad() {
+        return this.load;
     }
 
     /**
@@ -54,11 +129,9 @@ public class DataModel extends Observable {
      * @param photoList new PhotoManager for this DataModel
      */
     public void setPhotoList(PhotoManager photoList) {
-        this.photoList = photoList;
-
-        // Notify all observers that this model has changed
-        setChanged();
-        notifyObservers();
+        // Deliver the changes made to photoList on the JavaFX thread, in one batch per pulse
+        if (photoList != null) photoList.getEvents().setDeliveryExecutor(Platform::runLater);
+        this.photoList.set(photoList);
     }
 
     /**
@@ -67,6 +140,15 @@ public class DataModel extends Observable {
      * @return this DataModel's PhotoManager
      */
     public PhotoManager getPhotoList() {
+        return this.photoList.get();
+    }
+
+    /**
+     * Get the property holding the PhotoManager for the UI, which changes when a new directory is opened.
+     *
+     * @return this DataModel's PhotoManager property
+     */
+    public ReadOnlyObjectProperty<PhotoManager> photoListProperty() {
         return this.photoList;
     }
 
@@ -89,15 +171,60 @@ public class DataModel extends Observable {
     }
 
     /**
-     * Takes a list of Photos and creates a list of Cells in order to populate the listView
+     * Set every Cell selected by the user.
+     *
+     * @param cells the Cells now selected
+     */
+    public void setSelectedCells(List<Cell> cells) {
+        this.selectedCells = cells;
+    }
+
+    /**
+     * Get the Photos of every Cell selected by the user, which the photo actions apply to.
      *
-     * @param photos new list of Photos for this DataModel
+     * @return the Photos selected, in the order they were selected
      */
-    public void setCells(List<Photo> photos) {
-        ArrayList<Cell> cells = new ArrayList<>();
-        for (Photo p : photos) {
-            cells.add(new Cell(p, p.getIsFavourite()));
+    public List<Photo> getSelectedPhotos() {
+        List<Photo> photos = new ArrayList<>(selectedCells.size());
+        for (Cell cell : selectedCells) {
+            photos.add(cell.getPhoto());
         }
+        return photos;
+    }
+
+    /**
+     * Set the change being made to many Photos at once, so its progress can be shown.
+     *
+     * @param job the BulkJob just started
+     */
+    public void setJob(BulkJob job) {
+        this.job.set(job);
+    }
+
+    /**
+     * Get the latest change made to many Photos at once.
+     *
+     * @return this DataModel's BulkJob, or null if none has been started
+     */
+    public BulkJob getJob() {
+        return this.job.get();
+    }
+
+    /**
+     * Get the property holding the latest change made to many Photos at once, which changes when another starts.
+     *
+     * @return this DataModel's BulkJob property
+     */
+    public ReadOnlyObjectProperty<BulkJob> jobProperty() {
+        return this.job;
+    }
+
+    /**
+     * Replaces the list of Cells used to populate the listView, keeping the selected Cell
+     *
+     * @param cells new list of Cells for this DataModel
+     */
+    public void setCells(List<Cell> cells) {
         Cell selectedCell = this.getCurrentCell();
         this.cells.setAll(cells);
 
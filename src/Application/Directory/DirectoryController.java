@@ -2,11 +2,18 @@ package Application.Directory;
 
 import Application.Controller;
 import Application.DataModel;
+import PhotoManaging.DirectoryLoad;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.fxml.FXML;
 import javafx.scene.Cursor;
+import javafx.scene.control.Button;
 import javafx.scene.control.TextField;
+import javafx.scene.text.Text;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 import java.awt.*;
 import java.io.File;
@@ -18,6 +25,14 @@ public class DirectoryController extends Controller {
     /* Displays the current working directory, if one exists */
     @FXML
     private TextField dirChoice;
+    /* Shows how many photos have been loaded from the directory so far */
+    @FXML
+    private Text loadStatus;
+    /* Stops loading the directory */
+    @FXML
+    private Button cancelLoad;
+    /* Updates loadStatus while the directory loads */
+    private final Timeline progress = new Timeline(new KeyFrame(Duration.millis(250), event -> showProgress()));
 
     /**
      * Initialize this DirectoryController.
@@ -32,6 +47,9 @@ public class DirectoryController extends Controller {
         dirChoice.setEditable(false);
         // Prevents TextField from changing cursor
         dirChoice.setCursor(Cursor.DEFAULT);
+
+        progress.setCycleCount(Animation.INDEFINITE);
+        cancelLoad.managedProperty().bind(cancelLoad.visibleProperty());
     }
 
     /**
@@ -57,16 +75,52 @@ public class DirectoryController extends Controller {
         File directory = dirChooser.showDialog(stage);
 
         if (directory != null) {
-            try {
-                model.setDirectory(directory.toString());
+            loadStatus.setText("Opening " + directory + "...");
+            model.setDirectory(directory.toString(), () -> {
                 dirChoice.setText(directory.toString());
 
                 // Reset the title of the stage to reflect the directory
                 stage.setTitle("Photo Manager: " + model.getDirectory());
 
-            } catch (Exception e) {
-                e.printStackTrace();
-            }
+                // Show the progress of the loading, which goes on in the background
+                cancelLoad.setVisible(true);
+                showProgress();
+                progress.play();
+            });
+        }
+    }
+
+    /**
+     * Action taken when the user clicks the "Cancel" button while a directory is loading:
+     * Stop loading the directory, keeping the photos already loaded.
+     */
+    @FXML
+    void handleCancelLoadAction() {
+        DirectoryLoad load = this.getModel().getLoad();
+        if (load != null) {
+            load.cancel();
+        }
+    }
+
+    /**
+     * Show how many photos and folders have been loaded and how quickly, hiding the "Cancel" button once loading
+     * has ended.
+     */
+    private void showProgress() {
+        DirectoryLoad load = this.getModel().getLoad();
+        if (load == null) return;
+        String counts = String.format("%,d photos from %,d folders (%,.0f photos/s)", load.getPhotosLoaded(),
+                load.getDirectoriesScanned(), load.getPhotosPerSecond());
+        if (!load.isDone()) {
+            loadStatus.setText((load.isCancelled() ? "Cancelling... " : "Loading... ") + counts);
+            return;
+        }
+        progress.stop();
+        cancelLoad.setVisible(false);
+        if (load.getFailure() != null) {
+            loadStatus.setText("Could not load every photo: " + load.getFailure().getMessage());
+        } else {
+            loadStatus.setText((load.isCancelled() ? "Cancelled after " : "Loaded ") + counts);
         }
     }
 
@@ -0,0 +1,128 @@
+package Application;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * An ImageLoader which decodes images on a small pool of background threads, so the JavaFX thread never waits on
+ * a decode.
+ * <p>
+ * Waiting requests are ordered by Priority, and within a Priority the most recent request comes first, since that
+ * is the one for the cells the user is looking at now. A request can be cancelled once it is no longer wanted, for
+ * example when its cell is scrolled out of view and reused for another Photo.
+ */
+public class ImageLoader {
+
+    /**
+     * How urgently an image is wanted, most urgent first.
+     */
+    public enum Priority {
+        /* An image the user has asked to view */
+        VIEWER,
+        /* A thumbnail in the list of Photos */
+        THUMBNAIL
+    }
+
+    /* How many images are decoded at once, leaving a core free for the JavaFX thread */
+    private static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+
+    /* Counts requests, so later requests can be put ahead of earlier ones */
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    /* The threads on which images are decoded, taking the waiting Request that comes first */
+    private static final ThreadPoolExecutor DECODER = new ThreadPoolExecutor(THREADS, THREADS, 0,
+            TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), r -> {
+        Thread thread = new Thread(r, "Image decoder");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.NORM_PRIORITY - 1);
+        return thread;
+    });
+
+    /**
+     * Decodes an image in the background.
+     *
+     * @param priority how urgently the image is wanted
+     * @param load     decodes the image, returning null if it cannot be decoded
+     * @param onLoaded receives the image on the JavaFX thread, unless the request is cancelled first or the image
+     *                 is null
+     * @param <T>      the type of the decoded image
+     * @return the Request, which may be cancelled
+     */
+    public static <T> Request submit(Priority priority, Callable<T> load, Consumer<T> onLoaded) {
+        Request request = new Request(priority, SEQUENCE.incrementAndGet()) {
+            @Override
+            void load() throws Exception {
+                T image = load.call();
+                if (image != null && !isCancelled()) {
+                    Platform.runLater(() -> {
+                        if (!isCancelled()) onLoaded.accept(image);
+                    });
+                }
+            }
+        };
+        DECODER.execute(request);
+        return request;
+    }
+
+    /**
+     * A request to decode one image.
+     */
+    public static abstract class Request implements Runnable, Comparable<Request> {
+
+        /* How urgently the image is wanted */
+        private final Priority priority;
+
+        /* When the request was made, relative to every other request */
+        private final long sequence;
+
+        /* True if the image is no longer wanted */
+        private volatile boolean cancelled;
+
+        private Request(Priority priority, long sequence) {
+            this.priority = priority;
+            this.sequence = sequence;
+        }
+
+        /**
+         * Decodes the image and hands it on.
+         */
+        abstract void load() throws Exception;
+
+        /**
+         * Stops the image being decoded if it has not started yet, and stops it being handed on if it has.
+         */
+        public void cancel() {
+            cancelled = true;
+            DECODER.remove(this);
+        }
+
+        /**
+         * @return true if the image is no longer wanted
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        @Override
+        public void run() {
+            if (cancelled) return;
+            try {
+                load();
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+
+        @Override
+        public int compareTo(Request other) {
+            if (priority != other.priority) return priority.compareTo(other.priority);
+            return Long.compare(other.sequence, sequence);
+        }
+    }
+}
@@ -27,7 +27,7 @@ public class ManagerController extends Controller {
 
     /**
      * Action taken when the user clicks the "View name change log" button:
-     * Open the name change log .txt file (NameHistory.txt), if it exists.
+     * Open the name change log file (NameHistory.log), if it exists.
      * <p>
      * Adapted from:
      * https://stackoverflow.com/questions/1816673/how-do-i-check-if-a-file-exists-in-java (11/18/19)
@@ -43,9 +43,9 @@ public class ManagerController extends Controller {
 
             // Conforms to either back slashes or forward slashes depending on the OS
             if (path.contains("/")) {
-                path += "/NameHistory.txt";
+                path += "/NameHistory.log";
             } else {
-                path += "\\NameHistory.txt";
+                path += "\\NameHistory.log";
             }
 
             File f = new File(path);
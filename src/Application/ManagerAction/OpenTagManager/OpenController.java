@@ -10,13 +10,10 @@ import javafx.scene.control.ListView;
 import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TextField;
 
-import java.util.Observable;
-import java.util.Observer;
-
 /**
  * Controller for the pop-up that displays when the user clicks "Open Tag Manager" under Photo Manager in the UI.
  */
-public class OpenController extends Controller implements Observer {
+public class OpenController extends Controller {
     /* The text the user inputs to add a tag to the master list for this directory*/
     @FXML
     private TextField tagInput;
@@ -34,13 +31,12 @@ public class OpenController extends Controller implements Observer {
     @Override
     public void initialize(DataModel model) {
         super.initialize(model);
-        model.addObserver(this);
 
         // Allow multiple tags to be chosen at once
         tagsToChoose.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
-        // Get the tags so the user can view and select them
-        tags.setAll(model.getPhotoList().getTagMaster());
+        // Get the tags so the user can view and select them, keeping them up to date as tags are added and removed
+        showTagMaster(tags);
         tagsToChoose.setItems(tags);
     }
 
@@ -53,7 +49,6 @@ public class OpenController extends Controller implements Observer {
         try {
             PhotoManager tempPhotoList = model.getPhotoList();
             tempPhotoList.addTag(tagInput.getCharacters().toString());
-            model.setPhotoList(tempPhotoList);
 
             errorMessage("");
         } catch (Exception e) {
@@ -75,19 +70,14 @@ public class OpenController extends Controller implements Observer {
             tempPhotoList.removeTag(tag);
         }
 
-        // Update the list of Photos for the user to view
-        model.setCells(tempPhotoList.getPhotoMaster());
-        model.setPhotoList(tempPhotoList);
-
         errorMessage("");
     }
 
     /**
-     * Update the list of tags when the model changes.
+     * Show the master list of tags of a newly opened directory.
      */
     @Override
-    public void update(Observable o, Object arg) {
-        DataModel model = this.getModel();
-        tags.setAll(model.getPhotoList().getTagMaster());
+    protected void photoListChanged() {
+        tags.setAll(this.getModel().getPhotoList().getTagMaster());
     }
 }
@@ -11,13 +11,16 @@ import javafx.scene.control.ListView;
 import javafx.scene.control.SelectionMode;
 import javafx.scene.control.TextField;
 
-import java.util.Observable;
-import java.util.Observer;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Controls the pop-up that displays when the user selects "Add Tag".
  */
-public class AddTagController extends Controller implements Observer {
+public class AddTagController extends Controller {
     /* The text the user inputs to add a new tag to the selected Cell's Photo */
     @FXML
     private TextField tagInput;
@@ -26,6 +29,8 @@ public class AddTagController extends Controller implements Observer {
     private ListView<String> tagsToChoose;
     /* The master list of tags associated with the current working directory, used to populate tagsToChoose*/
     private final ObservableList<String> tags = FXCollections.observableArrayList();
+    /* The Photos selected when this pop-up was opened, which the tags are added to */
+    private List<Photo> photos;
 
     /**
      * Initialize the AddTagController.
@@ -35,68 +40,58 @@ public class AddTagController extends Controller implements Observer {
     @Override
     public void initialize(DataModel model) {
         super.initialize(model);
-        model.addObserver(this);
+        photos = model.getSelectedPhotos();
 
         // Allow multiple tags to be chosen at once
         tagsToChoose.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
-        // Get the tags so the user can view and select them
-        tags.setAll(model.getPhotoList().getTagMaster());
+        // Get the tags so the user can view and select them, keeping them up to date as tags are added and removed
+        showTagMaster(tags);
         tagsToChoose.setItems(tags);
     }
 
     /**
      * Action taken when the user selects the "Add" button under the list of tags:
-     * Add one or more tags to the selected Cell's Photo from the master list of tags.
+     * Add one or more tags to the selected Cells' Photos from the master list of tags.
      */
     @FXML
     public void handleAddTagFromList() throws Exception {
-        DataModel model = this.getModel();
-        PhotoManager tempPhotoList = model.getPhotoList();
-
-        // Loop through every selected tag and add each to the selected Cell's Photo
         ObservableList<String> selectedTags = tagsToChoose.getSelectionModel().getSelectedItems();
-        for (String tag : selectedTags) {
-            Photo photo = model.getCurrentCell().getPhoto();
-            tempPhotoList.addTag(tag, photo);
-        }
-
-        // Update the list of Cells for the user to view
-        model.setCells(model.getPhotoList().getPhotoMaster());
-        model.setPhotoList(tempPhotoList);
-
-        errorMessage("");
+        addTags(new LinkedHashSet<>(selectedTags));
     }
 
     /**
      * Action taken when the user selects the "Add" button under the TextField:
-     * Add a new tag to the selected Cell's Photo that isn't already in the master list of tags.
+     * Add a new tag to the selected Cells' Photos that isn't already in the master list of tags.
      */
     @FXML
     public void handleAddTagFromInput() {
-        DataModel model = this.getModel();
-        PhotoManager tempPhotoList = model.getPhotoList();
-
         try {
-            tempPhotoList.addTag(tagInput.getCharacters().toString(), model.getCurrentCell().getPhoto());
-
-            // Update the list of Photos for the user to view
-            model.setCells(tempPhotoList.getPhotoMaster());
-            model.setPhotoList(tempPhotoList);
-
-            errorMessage("");
-        } catch (Exception e) {
+            addTags(Collections.singleton(tagInput.getCharacters().toString()));
+        } catch (IOException e) {
             errorMessage("Invalid tag");
         }
     }
 
     /**
-     * Update the list of tags when the model changes.
+     * Add every one of tags to the selected Photos in the background, renaming each file only once.
+     *
+     * @param tags the tags to add
+     * @throws IOException if a tag is illegal, in which case no Photo is changed
      */
-    @Override
-    public void update(Observable o, Object arg) {
+    private void addTags(Set<String> tags) throws IOException {
         DataModel model = this.getModel();
+        PhotoManager tempPhotoList = model.getPhotoList();
+
+        model.setJob(tempPhotoList.startTagChanges(photos, tags, Collections.emptySet()));
+        errorMessage("");
+    }
 
-        tags.setAll(model.getPhotoList().getTagMaster());
+    /**
+     * Show the master list of tags of a newly opened directory.
+     */
+    @Override
+    protected void photoListChanged() {
+        tags.setAll(this.getModel().getPhotoList().getTagMaster());
     }
 }
@@ -2,13 +2,18 @@ package Application.PhotoAction.MoveImage;
 
 import Application.Controller;
 import Application.DataModel;
+import PhotoManaging.Photo;
+import PhotoManaging.RelocateRule;
 import javafx.fxml.FXML;
 import javafx.scene.Cursor;
+import javafx.scene.control.ChoiceBox;
 import javafx.scene.control.TextField;
 import javafx.stage.DirectoryChooser;
 import javafx.stage.Stage;
 
 import java.io.File;
+import java.nio.file.Paths;
+import java.util.List;
 
 /**
  * Controller for the pop-up that displays when the user clicks "Move Image" under Photo Actions in the UI.
@@ -17,6 +22,11 @@ public class MoveImageController extends Controller {
     /* The text input of the user denoting the directory the user wishes to move the image to */
     @FXML
     private TextField dirChoice;
+    /* How the user wishes the images to be arranged within the directory */
+    @FXML
+    private ChoiceBox<RelocateRule> ruleChoice;
+    /* The Photos selected when this pop-up was opened, which are moved */
+    private List<Photo> photos;
 
     /**
      * Initialize this MoveImageController.
@@ -26,16 +36,20 @@ public class MoveImageController extends Controller {
     @Override
     public void initialize(DataModel model) {
         super.initialize(model);
+        photos = model.getSelectedPhotos();
 
         // Makes sure user cannot only edit the directory using the "Select" button
         dirChoice.setEditable(false);
         // Prevents TextField from changing cursor
         dirChoice.setCursor(Cursor.DEFAULT);
+
+        ruleChoice.getItems().setAll(RelocateRule.values());
+        ruleChoice.setValue(RelocateRule.DIRECTORY);
     }
 
     /**
      * Action taken when the user clicks the TextField:
-     * Open a directory choosing pop-up to select the directory to move the currently selected Cell's Photo to
+     * Open a directory choosing pop-up to select the directory to move the selected Cells' Photos to
      */
     @FXML
     public void handleSelectAction() {
@@ -55,17 +69,15 @@ public class MoveImageController extends Controller {
 
     /**
      * Action taken when the user clicks the "Move" button:
-     * Move the currently selected Cell's Photo to the new directory.
+     * Move the selected Cells' Photos to the new directory, arranged as chosen, in the background.
      */
     @FXML
     public void handleMoveAction() throws Exception {
         DataModel model = this.getModel();
 
         if (dirChoice != null) {
-            model.getPhotoList().movePhoto(dirChoice.getCharacters().toString(), model.getCurrentCell().getPhoto());
-
-            // Update the list of Photos for the user to view
-            model.setCells(model.getPhotoList().getPhotoMaster());
+            model.setJob(model.getPhotoList().startRelocate(photos, Paths.get(dirChoice.getCharacters().toString()),
+                    ruleChoice.getValue()));
 
             // Close pop-up
             Stage stage = (Stage) dirChoice.getScene().getWindow();
@@ -3,6 +3,7 @@ package Application.PhotoAction.RemoveTag;
 import Application.Controller;
 import Application.DataModel;
 import PhotoManaging.Photo;
+import PhotoManaging.PhotoEvent;
 import PhotoManaging.PhotoManager;
 import javafx.collections.FXCollections;
 import javafx.collections.ObservableList;
@@ -10,18 +11,24 @@ import javafx.fxml.FXML;
 import javafx.scene.control.ListView;
 import javafx.scene.control.SelectionMode;
 
-import java.util.Observable;
-import java.util.Observer;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
 
 /**
  * Controller for the pop-up that displays when the user clicks "Remove Tag" under Photo Actions in the UI.
  */
-public class RemoveTagController extends Controller implements Observer {
+public class RemoveTagController extends Controller {
     /* The selectable ListView of tags */
     @FXML
     private ListView<String> tagsToChoose;
-    /* The master list of tags associated with the current working directory, used to populate tagsToChoose*/
+    /* Every tag of the Photos selected when this pop-up was opened, used to populate tagsToChoose */
     private final ObservableList<String> tags = FXCollections.observableArrayList();
+    /* The Photos selected when this pop-up was opened, which the tags are removed from */
+    private final Set<Photo> photos = Collections.newSetFromMap(new IdentityHashMap<>());
 
     /**
      * Initialize this RemoveTagController.
@@ -31,43 +38,63 @@ public class RemoveTagController extends Controller implements Observer {
     @Override
     public void initialize(DataModel model) {
         super.initialize(model);
-        model.addObserver(this);
+        photos.addAll(model.getSelectedPhotos());
+
+        // Keep the tags up to date as they are added to and removed from the selected Photos
+        subscribe(PhotoEvent.TagAdded.class, events -> showTagsIfChanged(events));
+        subscribe(PhotoEvent.TagRemoved.class, events -> showTagsIfChanged(events));
 
         // Allow multiple tags to be chosen at once
         tagsToChoose.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
 
         // Set the list of tags so the user can view and select them
-        tags.setAll(model.getCurrentCell().getPhoto().getTags());
+        showTags();
         tagsToChoose.setItems(tags);
     }
 
     /**
      * Action taken when the user clicks the "Remove" button:
-     * Remove the currently selected tag(s) from the currently selected Photo.
+     * Remove the currently selected tag(s) from every selected Photo, in the background.
      */
     @FXML
     public void handleRemoveTagAction() throws Exception {
         DataModel model = this.getModel();
         PhotoManager tempPhotoList = model.getPhotoList();
 
-        // Loop through every selected tag and remove it from the Photo
+        // Remove every selected tag from each Photo at once, so each file is renamed only once
         ObservableList<String> selectedTags = tagsToChoose.getSelectionModel().getSelectedItems();
-        for (String tag : selectedTags) {
-            Photo photo = model.getCurrentCell().getPhoto();
-            tempPhotoList.removeTag(tag, photo);
+        model.setJob(tempPhotoList.startTagChanges(photos, Collections.emptySet(), new HashSet<>(selectedTags)));
+    }
+
+    /**
+     * Show every tag carried by any of the selected Photos, in the order they are first found.
+     */
+    private void showTags() {
+        LinkedHashSet<String> carried = new LinkedHashSet<>();
+        for (Photo photo : photos) {
+            carried.addAll(photo.getTags());
         }
+        tags.setAll(carried);
+    }
 
-        // Update the list of Photos for the user to view
-        model.setCells(model.getPhotoList().getPhotoMaster());
-        model.setPhotoList(model.getPhotoList());
+    /**
+     * Update the list of tags if any of events changed the tags of a selected Photo.
+     */
+    private void showTagsIfChanged(List<? extends PhotoEvent> events) {
+        for (PhotoEvent event : events) {
+            if (photos.contains(event.getPhoto())) {
+                showTags();
+                return;
+            }
+        }
     }
 
     /**
-     * Update the list of tags when the model changes.
+     * Clear the list of tags when another directory is opened, since the selected Photo is no longer shown.
      */
     @Override
-    public void update(Observable o, Object arg) {
-        DataModel model = this.getModel();
-        tags.setAll(model.getCurrentCell().getPhoto().getTags());
+    protected void photoListChanged() {
+        photos.clear();
+        tags.clear();
     }
 }
@@ -50,9 +50,6 @@ public class RestoreController extends Controller {
         model.getPhotoList().restoreName(model.getCurrentCell().getPhoto(),
                 namesToChoose.getSelectionModel().getSelectedIndex());
 
-        // Update the list of Photos for the user to view
-        model.setCells(model.getPhotoList().getPhotoMaster());
-
         // Close pop-up
         Stage stage = (Stage) namesToChoose.getScene().getWindow();
         stage.close();
@@ -2,20 +2,69 @@ package Application.PhotoAction.ViewImage;
 
 import Application.Controller;
 import Application.DataModel;
+import Application.ImageLoader;
+import PhotoManaging.ImageDecoder;
+import PhotoManaging.Photo;
+import javafx.animation.PauseTransition;
+import javafx.embed.swing.SwingFXUtils;
 import javafx.fxml.FXML;
+import javafx.geometry.Rectangle2D;
 import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
+import javafx.scene.layout.StackPane;
+import javafx.scene.shape.Rectangle;
+import javafx.util.Duration;
 
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
 import java.nio.file.Path;
 
 /**
  * Controller for the pop-up that displays when the user clicks "View Image" under Photo Actions in the UI.
+ * <p>
+ * The photo is decoded at the size of the window rather than at full resolution. Scrolling zooms in and dragging
+ * moves around the photo. While zoomed, the part of the photo in view is shown enlarged straight away, then decoded
+ * again at the resolution of the screen once the user stops, so memory use depends on the size of the window and not
+ * on the size of the photo.
  */
 public class ImageController extends Controller {
+    /* The largest zoom, as screen pixels per photo pixel */
+    private static final double MAX_SCALE = 4;
+    /* How long zooming or moving must pause before the view is decoded again */
+    private static final Duration REFINE_DELAY = Duration.millis(150);
+
+    /* The area the photo is displayed in */
+    @FXML
+    private StackPane viewer;
     /* The image associated with the Photo for the user to view */
     @FXML
     private ImageView imageBox;
 
+    /* The photo file being viewed */
+    private Path photoPath;
+    /* The width and height of the photo, or null until they are known */
+    private Dimension original;
+    /* The whole photo decoded to fit the window, or null until it is decoded */
+    private Image base;
+    /* The request decoding base, or null if none has been made */
+    private ImageLoader.Request baseRequest;
+    /* The part of the photo in view decoded at screen resolution, or null if there is none */
+    private Image refined;
+    /* The part of the photo and the scale that refined was decoded for */
+    private java.awt.Rectangle refinedRegion;
+    private double refinedScale;
+    /* The request decoding the next refined image, or null if none is waiting */
+    private ImageLoader.Request refineRequest;
+    /* Waits for zooming and moving to pause before the view is decoded again */
+    private final PauseTransition refineTimer = new PauseTransition(REFINE_DELAY);
+
+    /* How far the user has zoomed in, where 1 fits the whole photo in the window */
+    private double zoom = 1;
+    /* The point of the photo at the centre of the view, in pixels of the photo */
+    private double centreX, centreY;
+    /* Where the mouse was when it was last pressed or dragged */
+    private double dragX, dragY;
+
     /**
      * Display the selected Cell's Photo for the user.
      * <p>
@@ -26,8 +75,141 @@ public class ImageController extends Controller {
      */
     @Override
     public void initialize(DataModel model) {
-        Path photoPath = model.getCurrentCell().getPhoto().getPath();
-        Image image = new Image("file:" + photoPath.toString());
-        imageBox.setImage(image);
+        Photo photo = model.getCurrentCell().getPhoto();
+        photoPath = photo.getPath();
+
+        // Keep the enlarged photo inside the window
+        Rectangle clip = new Rectangle();
+        clip.widthProperty().bind(viewer.widthProperty());
+        clip.heightProperty().bind(viewer.heightProperty());
+        viewer.setClip(clip);
+
+        viewer.widthProperty().addListener((observable, oldWidth, newWidth) -> layout());
+        viewer.heightProperty().addListener((observable, oldHeight, newHeight) -> layout());
+        viewer.setOnScroll(event -> {
+            zoom = Math.max(1, Math.min(maxZoom(), zoom * Math.pow(1.0015, event.getDeltaY())));
+            layout();
+        });
+        viewer.setOnMousePressed(event -> {
+            dragX = event.getX();
+            dragY = event.getY();
+        });
+        viewer.setOnMouseDragged(event -> {
+            centreX -= (event.getX() - dragX) / scale();
+            centreY -= (event.getY() - dragY) / scale();
+            dragX = event.getX();
+            dragY = event.getY();
+            layout();
+        });
+        refineTimer.setOnFinished(event -> refine());
+
+        ImageLoader.submit(ImageLoader.Priority.VIEWER, photo::getDimensions, dimensions -> {
+            original = dimensions;
+            centreX = original.width / 2.0;
+            centreY = original.height / 2.0;
+            layout();
+        });
+    }
+
+    /**
+     * Show the part of the photo in view, decoding the photo first if it has not been decoded yet.
+     */
+    private void layout() {
+        if (original == null || viewer.getWidth() <= 0 || viewer.getHeight() <= 0) return;
+        if (baseRequest == null) {
+            int width = (int) Math.ceil(viewer.getWidth());
+            int height = (int) Math.ceil(viewer.getHeight());
+            baseRequest = ImageLoader.submit(ImageLoader.Priority.VIEWER,
+                    () -> toImage(ImageDecoder.decode(photoPath, width, height)), image -> {
+                        base = image;
+                        layout();
+                    });
+            return;
+        }
+        if (base == null) return;
+
+        double scale = scale();
+        java.awt.Rectangle region = visibleRegion(scale);
+        if (refined != null && region.equals(refinedRegion) && scale == refinedScale) {
+            imageBox.setViewport(null);
+            imageBox.setImage(refined);
+        } else {
+            // Show the matching part of base straight away, and decode the region properly once the user stops
+            double baseScale = base.getWidth() / original.width;
+            imageBox.setViewport(new Rectangle2D(region.x * baseScale, region.y * baseScale,
+                    region.width * baseScale, region.height * baseScale));
+            imageBox.setImage(base);
+            if (baseScale < Math.min(scale, 1) * 0.99) {
+                refineTimer.playFromStart();
+            } else {
+                refineTimer.stop();
+            }
+        }
+        imageBox.setFitWidth(region.width * scale);
+        imageBox.setFitHeight(region.height * scale);
+        imageBox.relocate((viewer.getWidth() - region.width * scale) / 2,
+                (viewer.getHeight() - region.height * scale) / 2);
+    }
+
+    /**
+     * Decode the part of the photo in view at the resolution it is shown at, replacing any earlier refined image.
+     */
+    private void refine() {
+        if (refineRequest != null) refineRequest.cancel();
+        double scale = scale();
+        java.awt.Rectangle region = visibleRegion(scale);
+        // Never decode more pixels than the photo has, however far the user zooms in
+        int width = (int) Math.ceil(region.width * Math.min(scale, 1));
+        int height = (int) Math.ceil(region.height * Math.min(scale, 1));
+        refineRequest = ImageLoader.submit(ImageLoader.Priority.VIEWER,
+                () -> toImage(ImageDecoder.decode(photoPath, region, width, height)), image -> {
+                    refined = image;
+                    refinedRegion = region;
+                    refinedScale = scale;
+                    refineRequest = null;
+                    layout();
+                });
+    }
+
+    /**
+     * @return the part of the photo in view at scale, in pixels of the photo, moving the centre of the view if
+     * needed to keep it within the photo
+     */
+    private java.awt.Rectangle visibleRegion(double scale) {
+        int width = (int) Math.min(original.width, Math.ceil(viewer.getWidth() / scale));
+        int height = (int) Math.min(original.height, Math.ceil(viewer.getHeight() / scale));
+        int x = (int) Math.max(0, Math.min(original.width - width, Math.round(centreX - width / 2.0)));
+        int y = (int) Math.max(0, Math.min(original.height - height, Math.round(centreY - height / 2.0)));
+        centreX = x + width / 2.0;
+        centreY = y + height / 2.0;
+        return new java.awt.Rectangle(x, y, width, height);
+    }
+
+    /**
+     * @return the current screen pixels per photo pixel
+     */
+    private double scale() {
+        return fitScale() * zoom;
+    }
+
+    /**
+     * @return the screen pixels per photo pixel at which the whole photo fits the window, never enlarging it
+     */
+    private double fitScale() {
+        return Math.min(1, Math.min(viewer.getWidth() / original.width, viewer.getHeight() / original.height));
+    }
+
+    /**
+     * @return the zoom at which the photo is shown at MAX_SCALE
+     */
+    private double maxZoom() {
+        return original == null ? 1 : Math.max(1, MAX_SCALE / fitScale());
+    }
+
+    /**
+     * @return image converted for display, or null if image is null
+     */
+    private static Image toImage(BufferedImage image) {
+        return image == null ? null : SwingFXUtils.toFXImage(image, null);
     }
 }
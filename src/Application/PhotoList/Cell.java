@@ -1,6 +1,7 @@
 package Application.PhotoList;
 
 import PhotoManaging.Photo;
+import PhotoManaging.SortKey;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.property.SimpleBooleanProperty;
 
@@ -15,6 +16,8 @@ public class Cell {
     private Photo photo;
     /* The boolean value of the checkbox of this Cell */
     private final BooleanProperty checked = new SimpleBooleanProperty();
+    /* The key this Cell's row was placed in the listView by */
+    private SortKey sortKey;
 
     /**
      * Initialize a new Cell.
@@ -45,6 +48,22 @@ public class Cell {
         return this.photo;
     }
 
+    /**
+     * @return the key this Cell's row was placed in the listView by, or null if it has not been placed
+     */
+    SortKey getSortKey() {
+        return this.sortKey;
+    }
+
+    /**
+     * Record the key this Cell's row is placed in the listView by.
+     *
+     * @param sortKey the SortKey of the Photo of this Cell when its row is placed
+     */
+    void setSortKey(SortKey sortKey) {
+        this.sortKey = sortKey;
+    }
+
     /**
      * Return the name of the Photo associated with this Cell.
      *
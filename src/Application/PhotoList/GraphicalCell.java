@@ -1,5 +1,6 @@
 package Application.PhotoList;
 
+import Application.ImageLoader;
 import javafx.beans.property.BooleanProperty;
 import javafx.beans.value.ObservableValue;
 import javafx.geometry.Insets;
@@ -10,6 +11,8 @@ import javafx.scene.image.ImageView;
 import javafx.scene.layout.GridPane;
 import javafx.util.Callback;
 
+import java.nio.file.Path;
+
 /**
  * A graphical assembly of the information found in Cell, used to populate the listView.
  * <p>
@@ -22,12 +25,16 @@ import javafx.util.Callback;
  * https://stackoverflow.com/questions/33592308/javafx-how-to-put-imageview-inside-listview (29/11/2017)
  */
 class GraphicalCell extends CheckBoxListCell<Cell> {
+    /* The width and height of the box each photo's thumbnail is shown in */
+    private static final int THUMBNAIL_SIZE = 100;
     /* The skeleton of this GraphicalCell, where the ImageView and CheckBox will be placed */
     private final GridPane grid = new GridPane();
     /* A CheckBox which is modifiable by the user */
     private final CheckBox check = new CheckBox();
     /* An ImageView of the photo file associated with the photo */
     private final ImageView imageView = new ImageView();
+    /* The request loading the thumbnail shown in imageView, or null if none is loading */
+    private ImageLoader.Request thumbnailRequest;
     /* The boolean which check is to be bound to */
     private ObservableValue<Boolean> booleanProperty;
 
@@ -57,6 +64,9 @@ class GraphicalCell extends CheckBoxListCell<Cell> {
     @Override
     public void updateItem(Cell item, boolean empty) {
         super.updateItem(item, empty);
+        // The thumbnail being loaded is for whatever this GraphicalCell showed before, so is no longer wanted
+        if (thumbnailRequest != null) thumbnailRequest.cancel();
+        thumbnailRequest = null;
         if (empty || item == null) {
             setText(null);
             setGraphic(null);
@@ -64,10 +74,9 @@ class GraphicalCell extends CheckBoxListCell<Cell> {
             setText(item.toString());
 
             // Configure imageView to display this Cell's associated photo file
-            imageView.setFitHeight(100);
-            imageView.setFitWidth(100);
-            Image image = new Image("file:" + item.getPhoto().getPath().toString());
-            imageView.setImage(image);
+            imageView.setFitHeight(THUMBNAIL_SIZE);
+            imageView.setFitWidth(THUMBNAIL_SIZE);
+            loadThumbnail(item.getPhoto().getPath());
 
             // Bind check with booleanProperty using a Callback
             Callback<Cell, ObservableValue<Boolean>> callback = getSelectedStateCallback();
@@ -80,4 +89,17 @@ class GraphicalCell extends CheckBoxListCell<Cell> {
             setGraphic(grid);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Show the thumbnail of photo in imageView, showing the thumbnail in memory, or else a placeholder, while it is
+     * loaded or checked against photo in the background, so the JavaFX thread never reads the file system.
+     *
+     * @param photo the photo file to show
+     */
+    private void loadThumbnail(Path photo) {
+        Image cached = ThumbnailCache.getIfCached(photo, THUMBNAIL_SIZE);
+        imageView.setImage(cached != null ? cached : ThumbnailCache.placeholder(THUMBNAIL_SIZE));
+        thumbnailRequest = ImageLoader.submit(ImageLoader.Priority.THUMBNAIL,
+                () -> ThumbnailCache.get(photo, THUMBNAIL_SIZE), imageView::setImage);
+    }
+}
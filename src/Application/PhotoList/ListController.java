@@ -2,40 +2,83 @@ package Application.PhotoList;
 
 import Application.Controller;
 import Application.DataModel;
+import Application.ImageLoader;
+import PhotoManaging.BulkJob;
 import PhotoManaging.Photo;
+import PhotoManaging.PhotoEvent;
+import PhotoManaging.PhotoManager;
+import PhotoManaging.PhotoOrder;
+import PhotoManaging.RelocateJob;
+import PhotoManaging.SortKey;
+import javafx.animation.Animation;
+import javafx.animation.KeyFrame;
+import javafx.animation.Timeline;
 import javafx.beans.value.ObservableValue;
+import javafx.collections.ListChangeListener;
+import javafx.collections.ObservableList;
 import javafx.fxml.FXML;
+import javafx.geometry.Rectangle2D;
+import javafx.scene.control.Button;
 import javafx.scene.control.CheckBox;
+import javafx.scene.control.ComboBox;
 import javafx.scene.control.ContextMenu;
 import javafx.scene.control.ListView;
 import javafx.scene.control.MenuItem;
+import javafx.scene.control.MultipleSelectionModel;
+import javafx.scene.control.ProgressBar;
+import javafx.scene.control.SelectionMode;
+import javafx.scene.control.TextField;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
+import javafx.scene.text.Text;
+import javafx.stage.Screen;
 import javafx.util.Callback;
+import javafx.util.Duration;
 
-import javax.imageio.ImageIO;
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
+import java.text.ParseException;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.Observable;
-import java.util.Observer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
 
 /**
  * A controller for the list of Photos section of the UI, located to the left and centre
  */
-public class ListController extends Controller implements Observer {
+public class ListController extends Controller {
     /* The list of Photos that the user can view and select from */
     @FXML
     private ListView<Cell> listView;
     /* The checkbox "View Favourites Only" which determines if only favourites are displayed or not */
     @FXML
     private CheckBox favCheckBox;
+    /* The tag query, such as "beach AND NOT blurry", which determines which Photos are displayed */
+    @FXML
+    private TextField queryInput;
+    /* The order the Photos are displayed in, such as by name or by size */
+    @FXML
+    private ComboBox<PhotoOrder> sortChoice;
+    /* Shows what the latest change to many photos at once is doing, and how far it has got */
+    @FXML
+    private Text jobStatus;
+    /* Shows the fraction of the photos the latest change to many photos at once has done */
+    @FXML
+    private ProgressBar jobProgress;
+    /* Stops the latest change to many photos at once */
+    @FXML
+    private Button cancelJob;
+    /* Updates jobStatus and jobProgress while a change to many photos at once goes on */
+    private final Timeline jobTimer = new Timeline(new KeyFrame(Duration.millis(250), event -> showJobProgress()));
     /* The menu which pops up when the user right clicks on a listView cell */
     private ContextMenu menu = new ContextMenu();
-
+    /* The Cell of each Photo shown so far, reused so each Photo only ever has one Cell and one checkbox listener */
+    private final IdentityHashMap<Photo, Cell> cellsByPhoto = new IdentityHashMap<>();
+    /* The PhotoManager whose Photos are displayed, or null if none are */
+    private PhotoManager shownPhotoList;
     /**
      * Initialize the DataModel that this ListController will control and set up the listView.
      * <p>
@@ -47,15 +90,51 @@ public class ListController extends Controller implements Observer {
     @Override
     public void initialize(DataModel model) {
         super.initialize(model);
-        model.addObserver(this);
+
+        // Apply each batch of changes to the rows they affect, rather than rebuilding the whole list
+        subscribe(PhotoEvent.PhotoAdded.class, this::showPhotos);
+        subscribe(PhotoEvent.PhotoRenamed.class, this::showPhotos);
+        subscribe(PhotoEvent.FavouriteChanged.class, this::showPhotos);
+        subscribe(PhotoEvent.PhotoModified.class, this::showPhotos);
+        subscribe(PhotoEvent.PhotoRemoved.class, this::removePhotos);
+        subscribe(PhotoEvent.PhotoMoved.class, events -> {
+            ArrayList<PhotoEvent> moved = new ArrayList<>();
+            ArrayList<PhotoEvent> removed = new ArrayList<>();
+            for (PhotoEvent.PhotoMoved event : events) {
+                if (event.isRemoved()) {
+                    removed.add(event);
+                } else {
+                    moved.add(event);
+                }
+            }
+            removePhotos(removed);
+            showPhotos(moved);
+        });
 
         initMenu();
         initListView();
 
         // Toggle the favourite view when "View Favourites Only" checkbox is checked
-        favCheckBox.selectedProperty().addListener((observable, oldChecked, newChecked) ->
-                toggleViewFavourites(newChecked));
+        favCheckBox.selectedProperty().addListener((observable, oldChecked, newChecked) -> refreshCells());
+
+        // Sort the Photos again when the user chooses another order, which they are then kept in
+        sortChoice.getItems().setAll(PhotoOrder.values());
+        sortChoice.setValue(PhotoOrder.NAME);
+        sortChoice.valueProperty().addListener((observable, oldOrder, newOrder) -> {
+            if (shownPhotoList != null) shownPhotoList.setSortOrder(newOrder);
+            refreshCells();
+        });
 
+        // Show the progress of each change to many photos at once, which goes on in the background
+        jobTimer.setCycleCount(Animation.INDEFINITE);
+        jobProgress.managedProperty().bind(jobProgress.visibleProperty());
+        cancelJob.managedProperty().bind(cancelJob.visibleProperty());
+        model.jobProperty().addListener((observable, oldJob, newJob) -> {
+            jobProgress.setVisible(true);
+            cancelJob.setVisible(true);
+            showJobProgress();
+            jobTimer.play();
+        });
     }
 
     /**
@@ -64,9 +143,12 @@ public class ListController extends Controller implements Observer {
     private void initListView() {
         DataModel model = this.getModel();
 
-        // Keep track of which Photo the user has selected
-        listView.getSelectionModel().selectedItemProperty().addListener((observable, oldCell, newCell) ->
-                model.setCurrentCell(newCell));
+        // Keep track of which Photos the user has selected, the last of which is the current one
+        MultipleSelectionModel<Cell> selection = listView.getSelectionModel();
+        selection.setSelectionMode(SelectionMode.MULTIPLE);
+        selection.selectedItemProperty().addListener((observable, oldCell, newCell) -> model.setCurrentCell(newCell));
+        selection.getSelectedItems().addListener((ListChangeListener<Cell>) change ->
+                model.setSelectedCells(new ArrayList<>(selection.getSelectedItems())));
 
         // Creating custom cells for the listView
         Callback<Cell, ObservableValue<Boolean>> cellToBoolean = Cell::onProperty;
@@ -104,9 +186,11 @@ public class ListController extends Controller implements Observer {
         MenuItem removeTag = new MenuItem("Remove Tag");
         MenuItem restoreName = new MenuItem("Restore To A Previous Name");
         MenuItem movePhoto = new MenuItem("Move To Another Directory");
+        MenuItem favourite = new MenuItem("Favourite");
+        MenuItem unfavourite = new MenuItem("Unfavourite");
         MenuItem viewPhoto = new MenuItem("View Full Size Photo");
         MenuItem openDir = new MenuItem("View In File Explorer");
-        menu.getItems().setAll(addTag, removeTag, restoreName, movePhoto, viewPhoto, openDir);
+        menu.getItems().setAll(addTag, removeTag, restoreName, movePhoto, favourite, unfavourite, viewPhoto, openDir);
 
         // Set the action taken when each menu option is selected
         addTag.setOnAction(event -> setStage("/Application/PhotoAction/AddTag/AddTagView.fxml",
@@ -117,21 +201,22 @@ public class ListController extends Controller implements Observer {
                 "Restore Name", 250, 150));
         movePhoto.setOnAction(event -> setStage("/Application/PhotoAction/MoveImage/MoveView.fxml",
                 "Move Image", 400, 150));
+        favourite.setOnAction(event ->
+                model.setJob(model.getPhotoList().startSetFavourite(model.getSelectedPhotos(), true)));
+        unfavourite.setOnAction(event ->
+                model.setJob(model.getPhotoList().startSetFavourite(model.getSelectedPhotos(), false)));
         viewPhoto.setOnAction(event -> {
-            // Getting the dimensions of the image so the pop-up can conform to it
-            String path = model.getCurrentCell().getPhoto().getPath().toString();
-            BufferedImage img = null;
-            try {
-                img = ImageIO.read(new File(path));
-            } catch (IOException e) {
-                e.printStackTrace();
-            }
-            assert img != null;
-            int width = img.getWidth();
-            int height = img.getHeight();
-
-            setStage("/Application/PhotoAction/ViewImage/ImageView.fxml",
-                    "Viewing image " + path, width, height);
+            // Getting the dimensions of the image from its header so the pop-up can conform to it
+            Photo photo = model.getCurrentCell().getPhoto();
+            String path = photo.getPath().toString();
+            ImageLoader.submit(ImageLoader.Priority.VIEWER, photo::getDimensions, size -> {
+                // Shrink the pop-up to fit on the screen, keeping the photo's proportions
+                Rectangle2D screen = Screen.getPrimary().getVisualBounds();
+                double ratio = Math.min(1, Math.min(0.9 * screen.getWidth() / size.width,
+                        0.9 * screen.getHeight() / size.height));
+                setStage("/Application/PhotoAction/ViewImage/ImageView.fxml", "Viewing image " + path,
+                        (int) Math.max(1, size.width * ratio), (int) Math.max(1, size.height * ratio));
+            });
         });
         openDir.setOnAction(event -> {
             // Get the parent directory for the selected photo
@@ -161,68 +246,261 @@ public class ListController extends Controller implements Observer {
 
 
     /**
-     * Toggle whether the listView displays all Photos in the directory or only favourite Photos.
-     *
-     * @param isChecked the bool value that determines what listView is changed to
+     * Action taken when the user presses enter in the tag query field:
+     * Display only the Photos matching the query, or all Photos if the query is empty.
+     */
+    @FXML
+    void handleQueryAction() {
+        refreshCells();
+    }
+
+    /**
+     * Action taken when the user clicks the "Cancel" button while photos are being changed:
+     * Stop the change, keeping the photos already changed.
+     */
+    @FXML
+    void handleCancelJobAction() {
+        BulkJob job = this.getModel().getJob();
+        if (job != null) {
+            job.cancel();
+        }
+    }
+
+    /**
+     * Show how many photos the latest change to many photos at once has done, hiding the "Cancel" button once it
+     * has ended.
      */
-    private void toggleViewFavourites(boolean isChecked) {
+    private void showJobProgress() {
+        BulkJob job = this.getModel().getJob();
+        if (job == null) return;
+        String counts = String.format("%,d of %,d photos", job.getPhotosDone(), job.getPhotoCount());
+        if (job.getBytesMoved() > 0) {   // photos copied to another disk
+            counts += String.format(" (%,.1f MB at %,.1f MB/s)", job.getBytesMoved() / 1e6,
+                    job.getBytesPerSecond() / 1e6);
+        }
+        jobProgress.setProgress(job.getPhotoCount() == 0 ? 1 : (double) job.getPhotosDone() / job.getPhotoCount());
+        if (!job.isDone()) {
+            jobStatus.setText((job.isCancelled() ? "Cancelling... " : job.getDescription() + "... ") + counts);
+            return;
+        }
+        jobTimer.stop();
+        jobProgress.setVisible(false);
+        cancelJob.setVisible(false);
+        if (job instanceof RelocateJob) {   // sum up where every photo went
+            jobStatus.setText((job.isCancelled() ? "Cancelled: " : "") + ((RelocateJob) job).getSummary());
+        } else if (job.getFailure() != null) {
+            jobStatus.setText("Could not change every photo: " + job.getFailure().getMessage());
+        } else {
+            jobStatus.setText((job.isCancelled() ? "Cancelled after " : job.getDescription() + " done: ") + counts);
+        }
+    }
 
+    /**
+     * Set the listView to display the Photos matching the tag query, keeping only favourite Photos if
+     * "View Favourites Only" is checked.
+     */
+    private void refreshCells() {
         DataModel model = this.getModel();
         if (model.getPhotoList() != null) {
-            if (isChecked) {     // change listView to show only favourited Photos in directory
-                ArrayList<Photo> favPhotos = new ArrayList<>();
-                for (Photo photo : model.getPhotoList().getPhotoMaster()) {
-                    if (photo.getIsFavourite()) {
-                        favPhotos.add(photo);
-                    }
+            // The PhotoManager keeps its Photos sorted, so they only need filtering here
+            ArrayList<SortKey> keys = model.getPhotoList().getSortKeys();
+            String query = currentQuery();
+            if (!query.isEmpty()) {     // show only the Photos matching the query
+                Set<Photo> matching = Collections.newSetFromMap(new IdentityHashMap<>());
+                try {
+                    matching.addAll(model.getPhotoList().query(query));
+                } catch (ParseException e) {
+                    errorMessage("Invalid query: " + e.getMessage());
+                    return;
                 }
-                model.setCells(favPhotos);
-                addListenersToCells();
-            } else {            // change listView to show all Photos in directory
-                model.setCells(model.getPhotoList().getPhotoMaster());
-                addListenersToCells();
+                keys.removeIf(key -> !matching.contains(key.getPhoto()));
+            }
+            errorMessage("");
+
+            if (favCheckBox.isSelected()) {     // show only favourited Photos
+                keys.removeIf(key -> !key.getPhoto().getIsFavourite());
             }
+            ArrayList<Cell> cells = new ArrayList<>(keys.size());
+            for (SortKey key : keys) {
+                Cell cell = cellFor(key.getPhoto());
+                cell.setSortKey(key);
+                cells.add(cell);
+            }
+            MultipleSelectionModel<Cell> selection = listView.getSelectionModel();
+            List<Cell> selected = new ArrayList<>(selection.getSelectedItems());
+            Cell current = selection.getSelectedItem();
+            model.setCells(cells);
+
+            // Keep the user's selection of the Photos still shown
+            select(selected, current);
         }
     }
 
     /**
-     * Add a listener to each cell that will change the cell's Photo's isFavourite value when the checkbox value
-     * changes.
+     * Select every one of cells still in the list, making current the current one if it is still there.
+     *
+     * @param cells   the Cells that were selected
+     * @param current the Cell that was current, or null
      */
-    private void addListenersToCells() {
-        DataModel model = this.getModel();
-        for (Cell c : listView.getItems()) {
-            c.onProperty().addListener((obs, wasChecked, isChecked) -> {
-                // Set the isFavourite value of the checked/unchecked Photo to reflect the state of the check box
-                c.getPhoto().setIsFavourite(isChecked);
+    private void select(List<Cell> cells, Cell current) {
+        if (cells.isEmpty()) return;
+        Set<Cell> wanted = Collections.newSetFromMap(new IdentityHashMap<>());
+        wanted.addAll(cells);
+        List<Cell> shown = this.getModel().getCells();
+        int[] indices = new int[cells.size()];
+        int count = 0;
+        int currentIndex = -1;
+        for (int i = 0; i < shown.size() && count < indices.length; i++) {
+            Cell cell = shown.get(i);
+            if (wanted.contains(cell)) {
+                indices[count++] = i;
+                if (cell == current) currentIndex = i;
+            }
+        }
+        if (count == 0) return;
+        MultipleSelectionModel<Cell> selection = listView.getSelectionModel();
+        selection.selectIndices(indices[0], Arrays.copyOfRange(indices, 1, count));
+        if (currentIndex >= 0) selection.select(currentIndex);
+    }
+
+    /**
+     * Show, hide, redraw or move the rows of the Photos of events after they have been added or changed, depending
+     * on whether each still matches the tag query and "View Favourites Only" and where it now falls in the sort
+     * order. The rows are kept sorted by the SortKey each was placed with, so a row is found and moved by binary
+     * search under its old and new keys rather than by searching or sorting the whole list.
+     *
+     * @param events the changes to Photos, at most one for each Photo
+     */
+    private void showPhotos(List<? extends PhotoEvent> events) {
+        ObservableList<Cell> cells = this.getModel().getCells();
+        for (PhotoEvent event : events) {
+            Photo photo = event.getPhoto();
+            Cell cell = cellFor(photo);
+            cell.onProperty().set(photo.getIsFavourite());
+            int index = indexOf(cells, cell);
+            if (!isShown(photo)) {
+                if (index >= 0) cells.remove(index);
+                continue;
+            }
+            SortKey key = shownPhotoList.getSortKey(photo);
+            if (index >= 0 && isInPlace(cells, index, key)) {
+                cell.setSortKey(key);
+                cells.set(index, cell);     // redraws only this row
+            } else {
+                if (index >= 0) cells.remove(index);
+                cell.setSortKey(key);
+                cells.add(insertionPoint(cells, key), cell);
+            }
+        }
+    }
+
+    /**
+     * Remove the rows of the Photos of events, after they have left the PhotoManager, all in one change to the list.
+     *
+     * @param events the removals of Photos
+     */
+    private void removePhotos(List<? extends PhotoEvent> events) {
+        Set<Cell> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (PhotoEvent event : events) {
+            Cell cell = cellsByPhoto.remove(event.getPhoto());
+            if (cell != null) removed.add(cell);
+        }
+        if (!removed.isEmpty()) this.getModel().getCells().removeAll(removed);
+    }
+
+    /**
+     * @return the index of the row of cell in cells, or -1 if it has none
+     */
+    private static int indexOf(List<Cell> cells, Cell cell) {
+        SortKey key = cell.getSortKey();
+        if (key == null) return -1;     // never placed
+        // The row is among those with keys equal to the one it was placed with, which end at the insertion point
+        for (int i = insertionPoint(cells, key) - 1; i >= 0 && cells.get(i).getSortKey().compareTo(key) == 0; i--) {
+            if (cells.get(i) == cell) return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @return true if a row with key would fall between the neighbours of the row at index
+     */
+    private static boolean isInPlace(List<Cell> cells, int index, SortKey key) {
+        return (index == 0 || cells.get(index - 1).getSortKey().compareTo(key) <= 0)
+                && (index == cells.size() - 1 || key.compareTo(cells.get(index + 1).getSortKey()) <= 0);
+    }
+
+    /**
+     * @return the index in cells, which are in order, at which a row with key belongs, after any with equal keys
+     */
+    private static int insertionPoint(List<Cell> cells, SortKey key) {
+        int low = 0;
+        int high = cells.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (cells.get(middle).getSortKey().compareTo(key) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * @return true if photo matches the tag query and "View Favourites Only"
+     */
+    private boolean isShown(Photo photo) {
+        if (favCheckBox.isSelected() && !photo.getIsFavourite()) return false;
+        String query = currentQuery();
+        try {
+            return query.isEmpty() || shownPhotoList.matches(query, photo);
+        } catch (ParseException e) {
+            return false;
+        }
+    }
+
+    /**
+     * @return the tag query entered by the user, or "" if there is none
+     */
+    private String currentQuery() {
+        return queryInput.getText() == null ? "" : queryInput.getText().trim();
+    }
+
+    /**
+     * Returns the Cell of photo, creating it if photo has not been shown before. Each new Cell is given a listener
+     * which will change its Photo's isFavourite value when the checkbox value changes.
+     *
+     * @param photo the Photo to display
+     * @return the Cell of photo
+     */
+    private Cell cellFor(Photo photo) {
+        Cell cell = cellsByPhoto.get(photo);
+        if (cell == null) {
+            cell = new Cell(photo, photo.getIsFavourite());
+            PhotoManager photoList = shownPhotoList;
+            cell.onProperty().addListener((obs, wasChecked, isChecked) -> {
                 try {
                     // tracks change in the favList.txt
-                    model.getPhotoList().setFavourite(c.getPhoto(), isChecked);
+                    photoList.setFavourite(photo, isChecked);
                 } catch (Exception e) {
                     e.printStackTrace();
                 }
             });
+            cellsByPhoto.put(photo, cell);
         }
+        return cell;
     }
 
     /**
-     * Update the list of Cells when the model changes.
+     * Start displaying the Photos of the model's PhotoManager when it is replaced.
      */
     @Override
-    public void update(Observable o, Object arg) {
-        DataModel model = this.getModel();
-        Cell selectedCell = model.getCurrentCell();
-
-        // Sort alphabetically
-        ArrayList<Photo> photos = model.getPhotoList().getPhotoMaster();
-        photos.sort(Comparator.comparing(Photo::toString));
+    protected void photoListChanged() {
+        shownPhotoList = this.getModel().getPhotoList();
+        cellsByPhoto.clear();
+        if (shownPhotoList != null) shownPhotoList.setSortOrder(sortChoice.getValue());
 
         // Set the list of Photos for the user to view
-        model.setCells(photos);
-
-        // Retain the selected cell
-        model.setCurrentCell(selectedCell);
-
-        addListenersToCells();
+        refreshCells();
     }
 }
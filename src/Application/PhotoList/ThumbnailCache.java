@@ -0,0 +1,129 @@
+package Application.PhotoList;
+
+import PhotoManaging.ThumbnailStore;
+import javafx.embed.swing.SwingFXUtils;
+import javafx.scene.image.Image;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A bounded cache of the thumbnails shown by GraphicalCell, so a recycled cell does not decode its photo again.
+ * The least recently shown thumbnails are dropped once MAX_ENTRIES are held, and thumbnails not in memory are read
+ * from ThumbnailStore. It is safe to use from any thread.
+ * <p>
+ * getIfCached only looks in memory, so it is cheap enough for the JavaFX thread; it may return the thumbnail of a
+ * photo since edited. get checks the photo's modification time against the one its thumbnail was made from, so it
+ * is the one to call from ImageLoader to bring a shown thumbnail up to date.
+ */
+class ThumbnailCache {
+
+    /* How many thumbnails are kept in memory */
+    static final int MAX_ENTRIES = 500;
+
+    /* The cached thumbnails, keyed by path and size, from least to most recently used */
+    private static final LinkedHashMap<String, Thumbnail> CACHE =
+            new LinkedHashMap<String, Thumbnail>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, Thumbnail> eldest) {
+                    return size() > MAX_ENTRIES;
+                }
+            };
+
+    /* The image shown in place of a thumbnail that is still loading */
+    private static Image placeholder;
+
+    /**
+     * Returns the thumbnail of photo no larger than size by size, if it is in memory.
+     *
+     * @param photo the photo file to show
+     * @param size  the largest width and height of the thumbnail, in pixels
+     * @return the thumbnail, or null if it has not been loaded
+     */
+    static Image getIfCached(Path photo, int size) {
+        Thumbnail thumbnail;
+        synchronized (CACHE) {
+            thumbnail = CACHE.get(key(photo, size));
+        }
+        return thumbnail == null ? null : thumbnail.image;
+    }
+
+    /**
+     * Returns the thumbnail of photo no larger than size by size, loading it if it is not in memory or photo has
+     * been modified since it was loaded. As this reads photo's attributes and may decode it, it should be called
+     * from ImageLoader rather than the JavaFX thread.
+     *
+     * @param photo the photo file to show
+     * @param size  the largest width and height of the thumbnail, in pixels
+     * @return the thumbnail, or null if photo cannot be read or decoded
+     */
+    static Image get(Path photo, int size) {
+        try {
+            String key = key(photo, size);
+            long modified = Files.getLastModifiedTime(photo).toMillis();
+            Thumbnail cached;
+            synchronized (CACHE) {
+                cached = CACHE.get(key);
+            }
+            if (cached != null && cached.modified == modified) return cached.image;
+
+            BufferedImage thumbnail = ThumbnailStore.thumbnail(photo, size);
+            if (thumbnail == null) return null;
+            Image image = SwingFXUtils.toFXImage(thumbnail, null);
+            synchronized (CACHE) {
+                CACHE.put(key, new Thumbnail(image, modified));
+            }
+            return image;
+        } catch (IOException e) {
+            e.printStackTrace();
+            return null;
+        }
+    }
+
+    /**
+     * @return the key of the thumbnail of photo at size
+     */
+    private static String key(Path photo, int size) {
+        return photo.toAbsolutePath() + "\t" + size;
+    }
+
+    /**
+     * Returns a plain grey image of size by size, shown while a thumbnail is loading.
+     *
+     * @param size the width and height of the placeholder
+     * @return the placeholder
+     */
+    static synchronized Image placeholder(int size) {
+        if (placeholder == null || placeholder.getWidth() != size) {
+            WritableImage image = new WritableImage(size, size);
+            for (int x = 0; x < size; x++) {
+                for (int y = 0; y < size; y++) {
+                    image.getPixelWriter().setColor(x, y, Color.gray(0.85));
+                }
+            }
+            placeholder = image;
+        }
+        return placeholder;
+    }
+
+    /**
+     * A Thumbnail which is a cached image along with the modification time of the photo it was made from.
+     */
+    private static class Thumbnail {
+        /* The thumbnail */
+        private final Image image;
+        /* The modification time of the photo when image was made, in milliseconds */
+        private final long modified;
+
+        Thumbnail(Image image, long modified) {
+            this.image = image;
+            this.modified = modified;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package PhotoManaging;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * A BaseNameIndex which counts the Photos of a PhotoManager sharing each base name, so a unique name can be found
+ * for a new Photo without comparing it against the name of every other Photo.
+ * <p>
+ * A name counts as a duplicate of a base name if it is that base name followed by any number of " (number)"
+ * suffixes, so "photo (2) (3)" is a duplicate of "photo (2) (3)", "photo (2)" and "photo". The base name of the new
+ * Photo is matched as a regular expression, as PhotoManager always has, so "a.b" is a duplicate of "axb" and
+ * "photo (2)" matches "photo 2". Such base names are rare, and are matched against every distinct base name counted;
+ * every other base name is looked up directly.
+ */
+class BaseNameIndex {
+
+    /* The characters with a special meaning in a regular expression */
+    private static final String REGEX_CHARACTERS = "\\^$.|?*+()[]{}";
+
+    /* The characters matched by \s in a regular expression */
+    private static final String REGEX_WHITESPACE = " \t\n\u000B\f\r";
+
+    /* The number of Photos that are duplicates of each base name */
+    private final HashMap<String, Integer> duplicateCounts = new HashMap<>();
+
+    /* The number of Photos with each base name exactly */
+    private final HashMap<String, Integer> exactCounts = new HashMap<>();
+
+    /**
+     * Counts a Photo named name.
+     *
+     * @param name the name of a Photo entering the PhotoManager
+     */
+    void add(String name) {
+        count(name, 1);
+    }
+
+    /**
+     * Stops counting a Photo named name.
+     *
+     * @param name the name of a Photo leaving the PhotoManager
+     */
+    void remove(String name) {
+        count(name, -1);
+    }
+
+    /**
+     * Generates a unique name for the Photo with originalName by
+     * adding a (number) after the base name if any Photo counted is a duplicate of it
+     *
+     * @param originalName the name read in from the filepath
+     * @return a possibly modified name that will be unique in the PhotoManager
+     */
+    String uniqueName(String originalName) {
+        String baseName;
+        String suffix = "";
+        if (!(originalName.contains("@"))) baseName = originalName;
+        else {
+            baseName = originalName.substring(0, originalName.indexOf('@') - 1);
+            suffix = originalName.substring(originalName.indexOf('@') - 1);
+        }
+        int duplicateCount = duplicatesOf(baseName);
+        if (duplicateCount == 0) return originalName;
+        else {
+            return baseName + " (" + ++duplicateCount + ")" + suffix;
+        }
+    }
+
+    /**
+     * @return the number of Photos counted whose base name matches baseName(\s\([0-9]*\))*
+     */
+    private int duplicatesOf(String baseName) {
+        if (!hasRegexCharacter(baseName) || exactCounts.isEmpty()) return duplicateCounts.getOrDefault(baseName, 0);
+        Pattern duplicate = Pattern.compile(baseName + "(\\s\\([0-9]*\\))*");
+        int count = 0;
+        for (Map.Entry<String, Integer> entry : exactCounts.entrySet()) {
+            if (duplicate.matcher(entry.getKey()).matches()) count += entry.getValue();
+        }
+        return count;
+    }
+
+    /**
+     * Adds delta to the count of every base name that name is a duplicate of.
+     */
+    private void count(String name, int delta) {
+        String baseName = Photo.baseName(name);
+        exactCounts.merge(baseName, delta, Integer::sum);
+        exactCounts.remove(baseName, 0);
+        while (baseName != null) {
+            duplicateCounts.merge(baseName, delta, Integer::sum);
+            duplicateCounts.remove(baseName, 0);
+            baseName = stripDuplicateNumber(baseName);
+        }
+    }
+
+    /**
+     * Removes a trailing " (number)" from baseName.
+     *
+     * @param baseName the base name to strip
+     * @return baseName without its last duplicate number, or null if it does not end in one
+     */
+    private static String stripDuplicateNumber(String baseName) {
+        int open = baseName.lastIndexOf('(');
+        if (!baseName.endsWith(")") || open < 1 || REGEX_WHITESPACE.indexOf(baseName.charAt(open - 1)) < 0) {
+            return null;
+        }
+        for (int i = open + 1; i < baseName.length() - 1; i++) {
+            if (baseName.charAt(i) < '0' || baseName.charAt(i) > '9') return null;
+        }
+        return baseName.substring(0, open - 1);
+    }
+
+    /**
+     * @return true if name has a character with a special meaning in a regular expression
+     */
+    private static boolean hasRegexCharacter(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (REGEX_CHARACTERS.indexOf(name.charAt(i)) >= 0) return true;
+        }
+        return false;
+    }
+}
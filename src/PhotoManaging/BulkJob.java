@@ -0,0 +1,151 @@
+package PhotoManaging;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A BulkJob which follows one change, such as adding tags or moving, being made to many Photos of a PhotoManager on
+ * a background thread, counting the Photos done so far so progress can be shown, and which can be cancelled.
+ * <p>
+ * The Photos are changed a chunk at a time. The events of the whole job are delivered as one batch when it ends.
+ */
+public class BulkJob {
+
+    /* What the job does, such as "Tagging" */
+    private final String description;
+
+    /* The number of Photos the job changes */
+    private final int photoCount;
+
+    /* The number of Photos done so far */
+    private final AtomicInteger photosDone = new AtomicInteger();
+
+    /* The number of bytes copied so far, by moves between file systems */
+    private final AtomicLong bytesMoved = new AtomicLong();
+
+    /* When the job started, as System.nanoTime */
+    private final long startNanos = System.nanoTime();
+
+    /* When the job ended, as System.nanoTime, or 0 if it has not ended */
+    private volatile long endNanos;
+
+    /* True if cancel has been called */
+    private volatile boolean cancelled;
+
+    /* The reason a Photo could not be changed, or null if every Photo so far was */
+    private volatile Exception failure;
+
+    /* Released when the job ends */
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    /**
+     * Initialize a new BulkJob.
+     *
+     * @param description see above instance parameter
+     * @param photoCount  see above instance parameter
+     */
+    BulkJob(String description, int photoCount) {
+        this.description = description;
+        this.photoCount = photoCount;
+    }
+
+    /**
+     * Stops the job after the current chunk. The Photos already changed stay changed.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true if cancel has been called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return true if the job has ended, because every Photo was done or it was cancelled
+     */
+    public boolean isDone() {
+        return finished.getCount() == 0;
+    }
+
+    /**
+     * Waits for the job to end.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public void await() throws InterruptedException {
+        finished.await();
+    }
+
+    /**
+     * @return the reason a Photo could not be changed, or null if every Photo done was changed
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return what the job does, such as "Tagging"
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return the number of Photos the job changes
+     */
+    public int getPhotoCount() {
+        return photoCount;
+    }
+
+    /**
+     * @return the number of Photos done so far
+     */
+    public int getPhotosDone() {
+        return photosDone.get();
+    }
+
+    /**
+     * @return the number of bytes copied so far by moves between file systems, which is 0 if every file was renamed
+     */
+    public long getBytesMoved() {
+        return bytesMoved.get();
+    }
+
+    /**
+     * @return the average number of bytes copied per second, up to now or until the job ended
+     */
+    public double getBytesPerSecond() {
+        long end = isDone() ? endNanos : System.nanoTime();
+        double seconds = (end - startNanos) / 1e9;
+        return seconds > 0 ? getBytesMoved() / seconds : 0;
+    }
+
+    /**
+     * Counts count more Photos as done.
+     */
+    void photosDone(int count) {
+        photosDone.addAndGet(count);
+    }
+
+    /**
+     * Counts bytes more bytes as copied.
+     */
+    void bytesMoved(long bytes) {
+        bytesMoved.addAndGet(bytes);
+    }
+
+    /**
+     * Records that the job has ended.
+     *
+     * @param failure the reason a Photo could not be changed, or null if every Photo done was changed
+     */
+    void finish(Exception failure) {
+        this.failure = failure;
+        endNanos = System.nanoTime();
+        finished.countDown();
+    }
+}
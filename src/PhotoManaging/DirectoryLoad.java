@@ -0,0 +1,119 @@
+package PhotoManaging;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A DirectoryLoad which follows the loading of the Photos of a PhotoManager, counting the photos and directories
+ * loaded so far so progress can be shown, and which can be cancelled.
+ * <p>
+ * Photos are added to the PhotoManager in batches as they are found, so they can be browsed before loading ends.
+ */
+public class DirectoryLoad {
+
+    /* The number of Photos added so far */
+    private final AtomicInteger photosLoaded = new AtomicInteger();
+
+    /* The number of directories listed so far */
+    private final AtomicInteger directoriesScanned = new AtomicInteger();
+
+    /* When loading started, as System.nanoTime */
+    private final long startNanos = System.nanoTime();
+
+    /* When loading ended, as System.nanoTime, or 0 if it has not ended */
+    private volatile long endNanos;
+
+    /* True if cancel has been called */
+    private volatile boolean cancelled;
+
+    /* The reason loading failed, or null if it has not */
+    private volatile Exception failure;
+
+    /* Released when loading ends */
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    /**
+     * Stops loading after the current batch. The Photos already added stay in the PhotoManager.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return true if cancel has been called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @return true if loading has ended, because every Photo was added, it was cancelled or it failed
+     */
+    public boolean isDone() {
+        return finished.getCount() == 0;
+    }
+
+    /**
+     * Waits for loading to end.
+     *
+     * @throws InterruptedException if the waiting thread is interrupted
+     */
+    public void await() throws InterruptedException {
+        finished.await();
+    }
+
+    /**
+     * @return the reason loading failed, or null if it has not failed
+     */
+    public Exception getFailure() {
+        return failure;
+    }
+
+    /**
+     * @return the number of Photos added so far
+     */
+    public int getPhotosLoaded() {
+        return photosLoaded.get();
+    }
+
+    /**
+     * @return the number of directories listed so far
+     */
+    public int getDirectoriesScanned() {
+        return directoriesScanned.get();
+    }
+
+    /**
+     * @return the average number of Photos added per second, up to now or until loading ended
+     */
+    public double getPhotosPerSecond() {
+        long end = isDone() ? endNanos : System.nanoTime();
+        double seconds = (end - startNanos) / 1e9;
+        return seconds > 0 ? getPhotosLoaded() / seconds : 0;
+    }
+
+    /**
+     * Counts count more Photos as added.
+     */
+    void photosLoaded(int count) {
+        photosLoaded.addAndGet(count);
+    }
+
+    /**
+     * Counts one more directory as listed.
+     */
+    void directoryScanned() {
+        directoriesScanned.incrementAndGet();
+    }
+
+    /**
+     * Records that loading has ended.
+     *
+     * @param failure the reason loading failed, or null if it did not
+     */
+    void finish(Exception failure) {
+        this.failure = failure;
+        endNanos = System.nanoTime();
+        finished.countDown();
+    }
+}
@@ -0,0 +1,194 @@
+package PhotoManaging;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.regex.Pattern;
+
+/**
+ * A DirectoryScanner which walks a root directory and all of its subdirectories concurrently.
+ * The photo files found are handed out in batches as soon as they are found, in exactly the order a single-threaded
+ * recursive walk would encounter them.
+ * <p>
+ * A directory whose modification time is unchanged since the previous walk is not listed again: its entries are
+ * taken from the LibraryIndex of that walk instead. The walk records a new LibraryIndex as it goes.
+ * <p>
+ * Splitting the walk into a RecursiveTask per directory is adapted from the Fork/Join lesson of the Java Tutorials:
+ * https://docs.oracle.com/javase/tutorial/essential/concurrency/forkjoin.html (17/10/26)
+ */
+class DirectoryScanner {
+
+    /* The file types recognised as photos */
+    static final String IMAGE_TYPES = ".*\\.(jpg|png|gif|bmp)";
+
+    /* IMAGE_TYPES compiled once, since every file found is checked against it */
+    private static final Pattern IMAGE_PATTERN = Pattern.compile(IMAGE_TYPES);
+
+    /* The most photo files handed out in one batch */
+    static final int BATCH_SIZE = 64;
+
+    /* The pool shared by every scan, sized to the number of available cores */
+    private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    /* Each directory of the walk not yet fully handed out, innermost first */
+    private final ArrayDeque<Iterator<Object>> directories = new ArrayDeque<>();
+
+    /* Counts the directories listed, and stops the walk when cancelled */
+    private final DirectoryLoad load;
+
+    /* The index of the directories walked so far */
+    private final LibraryIndex index;
+
+    /**
+     * Starts walking root. The subdirectories are listed in the background while the batches are handed out.
+     *
+     * @param root     the directory to search
+     * @param load     counts the directories listed, and stops the walk when cancelled
+     * @param previous the index of the previous walk of root, whose unchanged directories are not listed again
+     * @throws IOException if a DirectoryStream cannot be created for root
+     */
+    DirectoryScanner(Path root, DirectoryLoad load, LibraryIndex previous) throws IOException {
+        this.load = load;
+        this.index = new LibraryIndex(root);
+        try {
+            directories.push(POOL.invoke(new ScanTask(root, load, previous, index)).iterator());
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        load.directoryScanned();
+    }
+
+    /**
+     * Returns the next photo files of the walk, in the order of a depth-first walk. Each batch holds at most
+     * BATCH_SIZE files, all from the same directory.
+     *
+     * @return the next batch of photo files, or null if the walk has ended or was cancelled
+     * @throws IOException if a DirectoryStream cannot be created for any of the directories
+     */
+    List<Path> next() throws IOException {
+        List<Path> batch = new ArrayList<>();
+        while (!directories.isEmpty() && !load.isCancelled()) {
+            Iterator<Object> entries = directories.peek();
+            if (!entries.hasNext()) {
+                directories.pop();
+                continue;
+            }
+            Object entry = entries.next();
+            if (entry instanceof Path) {
+                batch.add((Path) entry);
+                if (batch.size() == BATCH_SIZE) return batch;
+            } else {
+                @SuppressWarnings("unchecked")
+                ForkJoinTask<List<Object>> subtask = (ForkJoinTask<List<Object>>) entry;
+                try {
+                    directories.push(subtask.join().iterator());
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+                load.directoryScanned();
+                if (!batch.isEmpty()) return batch;
+            }
+        }
+        return batch.isEmpty() || load.isCancelled() ? null : batch;
+    }
+
+    /**
+     * Returns the index of the directories walked so far, which covers every directory of root once next has
+     * returned null without the walk being cancelled.
+     *
+     * @return the index recorded by this walk
+     */
+    LibraryIndex index() {
+        return index;
+    }
+
+    /**
+     * Returns true if the file at path is recognised as a photo.
+     *
+     * @param path the file to check
+     * @return whether path has a photo file type
+     */
+    static boolean isPhoto(Path path) {
+        return IMAGE_PATTERN.matcher(path.toString()).matches();
+    }
+
+    /**
+     * A task that lists one directory, forking a subtask for each of its subdirectories.
+     */
+    private static class ScanTask extends RecursiveTask<List<Object>> {
+
+        private static final long serialVersionUID = 1L;
+
+        /* The directory listed by this task */
+        private final Path dirPath;
+
+        /* Stops the listing when cancelled */
+        private final DirectoryLoad load;
+
+        /* The index of the previous walk, and the index of this walk */
+        private final LibraryIndex previous;
+        private final LibraryIndex index;
+
+        ScanTask(Path dirPath, DirectoryLoad load, LibraryIndex previous, LibraryIndex index) {
+            this.dirPath = dirPath;
+            this.load = load;
+            this.previous = previous;
+            this.index = index;
+        }
+
+        @Override
+        protected List<Object> compute() {
+            // Each entry is either a photo Path or a forked ScanTask, kept in the order they were listed
+            List<Object> entries = new ArrayList<>();
+            if (load.isCancelled()) return entries;
+            try {
+                long modified = Files.getLastModifiedTime(dirPath).toMillis();
+                List<String> names = previous.entries(dirPath, modified);
+                if (names != null) {
+                    index.reuse(dirPath, previous);
+                } else {
+                    long listed = System.currentTimeMillis();
+                    names = list();
+                    index.record(dirPath, modified, listed, names, previous);
+                }
+                for (String name : names) {
+                    if (LibraryIndex.isDirectoryEntry(name)) {
+                        Path subdirectory = dirPath.resolve(name.substring(0, name.length() - 1));
+                        entries.add(new ScanTask(subdirectory, load, previous, index).fork());
+                    } else {
+                        entries.add(dirPath.resolve(name));
+                    }
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return entries;
+        }
+
+        /**
+         * @return the entries of dirPath, as kept by LibraryIndex
+         */
+        private List<String> list() throws IOException {
+            List<String> names = new ArrayList<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dirPath)) {
+                for (Path entry : stream) {
+                    if (isPhoto(entry)) {
+                        names.add(entry.getFileName().toString());
+                    } else if (entry.toFile().isDirectory()) {
+                        names.add(LibraryIndex.directoryEntry(entry));
+                    }
+                }
+            }
+            return names;
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package PhotoManaging;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+/**
+ * An EventBus which delivers the PhotoEvents of a PhotoManager to its subscribers in batches.
+ * <p>
+ * Events published one after another are held until the delivery Executor runs the pending batch, which for the UI
+ * is the next pulse of the JavaFX thread. Before delivery, repeated events about the same thing are merged, such as
+ * several renames of one Photo, and each subscriber is handed only the events of the class it subscribed to.
+ * By default batches are delivered straight away on the publishing thread. While the bus is held, as during a
+ * BulkJob, events are kept back and delivered as one batch when it is released.
+ */
+public class EventBus {
+
+    /* The current subscribers, in the order they subscribed */
+    private final CopyOnWriteArrayList<Subscription<?>> subscriptions = new CopyOnWriteArrayList<>();
+
+    /* The events waiting to be delivered, in the order they were published */
+    private ArrayList<PhotoEvent> pending = new ArrayList<>();
+
+    /* Runs each batch delivery */
+    private volatile Executor delivery = Runnable::run;
+
+    /* True if a delivery has been handed to the Executor but has not started yet */
+    private boolean deliveryScheduled;
+
+    /* The number of calls to hold not yet matched by a call to release */
+    private int holds;
+
+    /**
+     * Subscribes handler to every event of class type, or of a subclass of it.
+     *
+     * @param type    the class of events wanted, such as PhotoEvent.TagAdded.class, or PhotoEvent.class for all
+     * @param handler receives each batch of events of class type, in the order they were published
+     * @param <E>     the class of events wanted
+     * @return the Subscription, which can be cancelled
+     */
+    public <E extends PhotoEvent> Subscription<E> subscribe(Class<E> type, Consumer<List<E>> handler) {
+        Subscription<E> subscription = new Subscription<>(type, handler);
+        subscriptions.add(subscription);
+        return subscription;
+    }
+
+    /**
+     * Sets how batches are delivered, such as Platform::runLater to deliver on the JavaFX thread once per pulse.
+     *
+     * @param delivery runs each batch delivery
+     */
+    public void setDeliveryExecutor(Executor delivery) {
+        this.delivery = delivery;
+    }
+
+    /**
+     * Queues event for delivery, scheduling a delivery if one is not already scheduled.
+     *
+     * @param event the event to publish
+     */
+    void publish(PhotoEvent event) {
+        if (subscriptions.isEmpty()) return;    // nobody is listening, as while a PhotoManager is first loaded
+        boolean schedule;
+        synchronized (this) {
+            pending.add(event);
+            schedule = !deliveryScheduled && holds == 0;
+            if (schedule) deliveryScheduled = true;
+        }
+        if (schedule) delivery.execute(this::deliver);
+    }
+
+    /**
+     * Keeps back every event published from now until release is called, so they are delivered as one batch.
+     * Calls may be nested, each matched by a call to release.
+     */
+    synchronized void hold() {
+        holds++;
+    }
+
+    /**
+     * Ends a hold, scheduling delivery of the events kept back if no other hold remains.
+     */
+    void release() {
+        boolean schedule;
+        synchronized (this) {
+            holds--;
+            schedule = holds == 0 && !deliveryScheduled && !pending.isEmpty();
+            if (schedule) deliveryScheduled = true;
+        }
+        if (schedule) delivery.execute(this::deliver);
+    }
+
+    /**
+     * Delivers every pending event, unless the bus has been held since the delivery was scheduled.
+     */
+    private void deliver() {
+        ArrayList<PhotoEvent> batch;
+        synchronized (this) {
+            if (holds > 0) {    // release schedules another delivery
+                deliveryScheduled = false;
+                return;
+            }
+            batch = pending;
+            pending = new ArrayList<>();
+            deliveryScheduled = false;
+        }
+        List<PhotoEvent> events = coalesce(batch);
+        for (Subscription<?> subscription : subscriptions) {
+            subscription.deliver(events);
+        }
+    }
+
+    /**
+     * Returns events with each run of events sharing a class and coalesceKey merged into one event, placed where the
+     * last of them was published.
+     */
+    static List<PhotoEvent> coalesce(List<PhotoEvent> events) {
+        LinkedHashMap<Object, PhotoEvent> merged = new LinkedHashMap<>();
+        for (PhotoEvent event : events) {
+            Object key = event.coalesceKey();
+            if (key == null) {
+                merged.put(new Object(), event);   // never merged
+            } else {
+                key = new AbstractMap.SimpleImmutableEntry<>(event.getClass(), key);
+                PhotoEvent earlier = merged.remove(key);
+                merged.put(key, earlier == null ? event : earlier.merge(event));
+            }
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    /**
+     * A subscriber's interest in one class of events.
+     *
+     * @param <E> the class of events wanted
+     */
+    public class Subscription<E extends PhotoEvent> {
+
+        /* The class of events wanted */
+        private final Class<E> type;
+
+        /* Receives each batch of events of class type */
+        private final Consumer<List<E>> handler;
+
+        private Subscription(Class<E> type, Consumer<List<E>> handler) {
+            this.type = type;
+            this.handler = handler;
+        }
+
+        /**
+         * Stops any further events being delivered to this Subscription.
+         */
+        public void cancel() {
+            subscriptions.remove(this);
+        }
+
+        /**
+         * Hands the events of class type in batch to handler, if there are any.
+         */
+        private void deliver(List<PhotoEvent> batch) {
+            ArrayList<E> wanted = new ArrayList<>();
+            for (PhotoEvent event : batch) {
+                if (type.isInstance(event)) wanted.add(type.cast(event));
+            }
+            if (!wanted.isEmpty() && subscriptions.contains(this)) handler.accept(wanted);
+        }
+    }
+}
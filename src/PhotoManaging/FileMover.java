@@ -0,0 +1,164 @@
+package PhotoManaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * A FileMover which renames and moves photo files.
+ * <p>
+ * A file is moved without copying whenever source and target are on the same file system: a hard link to it is made
+ * at the target, which fails rather than replace a file already there, and then the source is deleted. A file system
+ * without hard links falls back to an atomic rename after checking that the target does not exist; as that rename
+ * replaces a target created between the check and the rename, only there can a file appearing at the same moment be
+ * lost. Otherwise,
+ * as between an ingest volume and an archive volume, it is copied into a ".part" file beside the target by
+ * FileChannel.transferTo, which lets the operating system copy without passing the bytes through the program. The
+ * copy is forced to disk and its checksum compared with the source's, and only then is it renamed into place and the
+ * source deleted. An IntentJournal can therefore always tell how far a move got: a ".part" file is a copy cut short,
+ * and a target matching its source is a copy whose source was not yet deleted.
+ * <p>
+ * The atomic rename, and the copy used when it fails across file systems, are adapted from:
+ * https://docs.oracle.com/javase/8/docs/api/java/nio/file/Files.html#move-java.nio.file.Path-java.nio.file.Path-java.nio.file.CopyOption...- (17/10/26)
+ * https://docs.oracle.com/javase/8/docs/api/java/nio/channels/FileChannel.html#transferTo-long-long-java.nio.channels.WritableByteChannel- (17/10/26)
+ */
+class FileMover {
+
+    /* The suffix of the file a copy is made into before it is renamed into place */
+    static final String PART_SUFFIX = ".part";
+
+    /* The size of the buffer files are read through to checksum them */
+    private static final int CHECKSUM_BUFFER_BYTES = 1 << 20;
+
+    /**
+     * Moves source to target, which must not already exist.
+     *
+     * @param source the file to move
+     * @param target where to move it, on any file system
+     * @return the number of bytes copied, which is 0 if the file was renamed without copying
+     * @throws IOException if the file cannot be moved, in which case source is left where it was
+     */
+    static long move(Path source, Path target) throws IOException {
+        boolean sameFile = Files.exists(target, LinkOption.NOFOLLOW_LINKS) && Files.isSameFile(source, target);
+        if (!sameFile && renameByLink(source, target)) return 0;
+
+        // An atomic rename silently replaces the target, which would lose another photo
+        if (!sameFile && Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+            throw new FileAlreadyExistsException(target.toString());
+        }
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+            return 0;
+        } catch (AtomicMoveNotSupportedException e) {
+            return copyAcross(source, target);
+        }
+    }
+
+    /**
+     * Renames source to target by making a hard link to it at target and then deleting source, so that a file
+     * already at target is never replaced.
+     *
+     * @return false if no link could be made, as between file systems or on one without hard links, in which case
+     * nothing was changed
+     * @throws FileAlreadyExistsException if target already exists
+     * @throws IOException                if source cannot be deleted, in which case the link is removed again
+     */
+    private static boolean renameByLink(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (FileAlreadyExistsException e) {
+            throw e;
+        } catch (FileSystemException | UnsupportedOperationException e) {
+            return false;
+        }
+        try {
+            Files.delete(source);
+        } catch (IOException e) {
+            Files.deleteIfExists(target);
+            throw e;
+        }
+        return true;
+    }
+
+    /**
+     * @return the file a copy of a file to target is made into before it is renamed to target
+     */
+    static Path partFile(Path target) {
+        return target.resolveSibling(target.getFileName() + PART_SUFFIX);
+    }
+
+    /**
+     * Returns true if a and b are the same length and have the same checksum.
+     *
+     * @param a the first file
+     * @param b the second file
+     * @return whether a and b hold the same bytes
+     * @throws IOException if either file cannot be read
+     */
+    static boolean sameContents(Path a, Path b) throws IOException {
+        return Files.size(a) == Files.size(b) && checksum(a) == checksum(b);
+    }
+
+    /**
+     * Copies source to target on another file system, then deletes source.
+     *
+     * @return the number of bytes copied
+     */
+    private static long copyAcross(Path source, Path target) throws IOException {
+        Path part = partFile(target);
+        try {
+            long size;
+            try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+                 FileChannel out = FileChannel.open(part, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                size = in.size();
+                long position = 0;
+                while (position < size) {
+                    long copied = in.transferTo(position, size - position, out);
+                    if (copied <= 0) throw new IOException(source + " changed while it was being copied");
+                    position += copied;
+                }
+                out.force(true);
+            }
+            // Keep the time the photo was last changed, which it may be sorted by
+            Files.setLastModifiedTime(part, Files.getLastModifiedTime(source));
+            if (checksum(source) != checksum(part)) {
+                throw new IOException("The copy of " + source + " at " + target + " does not match it");
+            }
+            if (!renameByLink(part, target)) {
+                if (Files.exists(target, LinkOption.NOFOLLOW_LINKS)) {
+                    throw new FileAlreadyExistsException(target.toString());
+                }
+                Files.move(part, target, StandardCopyOption.ATOMIC_MOVE);
+            }
+            Files.delete(source);
+            return size;
+        } finally {
+            Files.deleteIfExists(part);
+        }
+    }
+
+    /**
+     * @return the CRC-32 of the contents of file
+     */
+    private static long checksum(Path file) throws IOException {
+        CRC32 crc = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocateDirect(CHECKSUM_BUFFER_BYTES);
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (channel.read(buffer) >= 0) {
+                buffer.flip();
+                crc.update(buffer);
+                buffer.clear();
+            }
+        }
+        return crc.getValue();
+    }
+}
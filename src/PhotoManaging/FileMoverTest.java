@@ -0,0 +1,62 @@
+package PhotoManaging;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+
+public class FileMoverTest extends TestCase {
+
+    private Path root;
+
+    @Override
+    protected void setUp() throws Exception {
+        root = Files.createTempDirectory("FileMoverTest");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TempDirectories.delete(root);
+    }
+
+    @Test
+    public void testMove() throws Exception {
+        Path source = Files.write(root.resolve("a.jpg"), new byte[]{1, 2, 3});
+        Path target = Files.createDirectory(root.resolve("b")).resolve("a.jpg");
+        assertEquals(0, FileMover.move(source, target));     // renamed, as both are on one file system
+        assertFalse(Files.exists(source));
+        assertTrue(Arrays.equals(new byte[]{1, 2, 3}, Files.readAllBytes(target)));
+    }
+
+    @Test
+    public void testMoveKeepsExistingTarget() throws Exception {
+        Path source = Files.write(root.resolve("c.jpg"), new byte[]{1});
+        Path target = Files.write(root.resolve("d.jpg"), new byte[]{2});
+        try {
+            FileMover.move(source, target);
+            fail();
+        } catch (FileAlreadyExistsException e) {
+            assertTrue(Files.exists(source));
+            assertTrue(Arrays.equals(new byte[]{2}, Files.readAllBytes(target)));
+        }
+    }
+
+    @Test
+    public void testSameContents() throws Exception {
+        Path a = Files.write(root.resolve("e.jpg"), new byte[]{1, 2, 3});
+        Path b = Files.write(root.resolve("f.jpg"), new byte[]{1, 2, 3});
+        Path c = Files.write(root.resolve("g.jpg"), new byte[]{1, 2, 4});
+        Files.setLastModifiedTime(b, FileTime.fromMillis(0));
+        assertTrue(FileMover.sameContents(a, b));
+        assertFalse(FileMover.sameContents(a, c));
+    }
+
+    @Test
+    public void testPartFile() {
+        assertEquals(root.resolve("h.jpg.part"), FileMover.partFile(root.resolve("h.jpg")));
+    }
+}
@@ -0,0 +1,74 @@
+package PhotoManaging;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A HistoryCompactor which compacts the name history of every directory of a PhotoManager in the background,
+ * following the PhotoManager's HistoryRetention.
+ */
+class HistoryCompactor {
+
+    /* How long after a PhotoManager is loaded its history is compacted, so loading is not slowed down */
+    static final long DELAY_SECONDS = 30;
+
+    /* The thread on which compactions are performed, one at a time */
+    private static final ScheduledExecutorService COMPACTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "History compactor");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * Schedules the name history of pm to be compacted after DELAY_SECONDS.
+     *
+     * @param pm the PhotoManager whose history is compacted
+     * @return the scheduled compaction
+     */
+    static ScheduledFuture<?> schedule(PhotoManager pm) {
+        return COMPACTOR.schedule(() -> compactQuietly(pm), DELAY_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Compacts every NameHistory.log of pm that has grown past its HistoryRetention's limit.
+     *
+     * @param pm the PhotoManager whose history is compacted
+     * @throws IOException if a log cannot be compacted
+     */
+    static void compact(PhotoManager pm) throws IOException {
+        HistoryRetention retention = pm.getHistoryRetention();
+        HashMap<Path, HashSet<String>> liveBaseNames = new HashMap<>();
+        synchronized (pm) {
+            liveBaseNames.put(pm.getPath(), new HashSet<>());
+            for (Photo photo : pm.getPhotoMaster()) {
+                liveBaseNames.computeIfAbsent(photo.getPath().getParent(), d -> new HashSet<>())
+                        .add(Photo.baseName(photo.toString()));
+            }
+        }
+        for (Map.Entry<Path, HashSet<String>> directory : liveBaseNames.entrySet()) {
+            NameHistoryStore store = NameHistoryStore.forDirectory(directory.getKey());
+            if (store.size() > retention.getCompactAboveBytes()) {
+                store.compact(directory.getValue(), retention);
+            }
+        }
+    }
+
+    /**
+     * Compacts the name history of pm, reporting rather than throwing any error.
+     */
+    private static void compactQuietly(PhotoManager pm) {
+        try {
+            compact(pm);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
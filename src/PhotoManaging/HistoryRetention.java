@@ -0,0 +1,60 @@
+package PhotoManaging;
+
+/**
+ * A HistoryRetention which bounds how much name history a PhotoManager keeps for its root.
+ * <p>
+ * Once a directory's NameHistory.log grows past compactAboveBytes it is compacted: only the latest maxNamesPerPhoto
+ * distinct previous names of each Photo still in the directory are kept, and the old log is rotated into a
+ * compressed archive, of which the newest maxArchives are kept.
+ */
+public class HistoryRetention {
+
+    /* The policy used by a PhotoManager until another is set */
+    public static final HistoryRetention DEFAULT = new HistoryRetention(50, 5, 256 * 1024);
+
+    /* How many distinct previous names to keep for each Photo, or 0 to keep them all */
+    private final int maxNamesPerPhoto;
+
+    /* How many compressed archives of old logs to keep in each directory, or 0 to keep none */
+    private final int maxArchives;
+
+    /* The size in bytes above which a NameHistory.log is compacted */
+    private final long compactAboveBytes;
+
+    /**
+     * Initialize a new HistoryRetention.
+     *
+     * @param maxNamesPerPhoto  see above instance parameter
+     * @param maxArchives       see above instance parameter
+     * @param compactAboveBytes see above instance parameter
+     */
+    public HistoryRetention(int maxNamesPerPhoto, int maxArchives, long compactAboveBytes) {
+        if (maxNamesPerPhoto < 0 || maxArchives < 0 || compactAboveBytes < 0) {
+            throw new IllegalArgumentException("Retention limits cannot be negative");
+        }
+        this.maxNamesPerPhoto = maxNamesPerPhoto;
+        this.maxArchives = maxArchives;
+        this.compactAboveBytes = compactAboveBytes;
+    }
+
+    /**
+     * @return how many distinct previous names are kept for each Photo, or 0 if they are all kept
+     */
+    public int getMaxNamesPerPhoto() {
+        return maxNamesPerPhoto;
+    }
+
+    /**
+     * @return how many compressed archives of old logs are kept in each directory
+     */
+    public int getMaxArchives() {
+        return maxArchives;
+    }
+
+    /**
+     * @return the size in bytes above which a NameHistory.log is compacted
+     */
+    public long getCompactAboveBytes() {
+        return compactAboveBytes;
+    }
+}
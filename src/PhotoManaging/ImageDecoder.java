@@ -0,0 +1,90 @@
+package PhotoManaging;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * An ImageDecoder which decodes photo files at the size they are to be shown at rather than at full resolution.
+ * <p>
+ * Whole rows and columns are skipped while decoding, so the memory used depends on the requested size and not on
+ * the size of the photo, and the result is then scaled down to fit exactly.
+ * <p>
+ * Reading only every nth pixel while decoding is adapted from the description of source subsampling in:
+ * https://docs.oracle.com/javase/8/docs/api/javax/imageio/IIOParam.html#setSourceSubsampling-int-int-int-int- (17/10/26)
+ */
+public class ImageDecoder {
+
+    /**
+     * Decodes the whole of photo to fit within width by height.
+     *
+     * @param photo  the photo file to decode
+     * @param width  the largest width of the result, in pixels
+     * @param height the largest height of the result, in pixels
+     * @return the decoded image, or null if photo is not an image that can be decoded
+     * @throws IOException if photo cannot be read
+     */
+    public static BufferedImage decode(Path photo, int width, int height) throws IOException {
+        return decode(photo, null, width, height);
+    }
+
+    /**
+     * Decodes region of photo to fit within width by height. A region smaller than width by height is decoded at
+     * full resolution and is not scaled up.
+     *
+     * @param photo  the photo file to decode
+     * @param region the part of photo to decode, in pixels of the photo, or null to decode all of it
+     * @param width  the largest width of the result, in pixels
+     * @param height the largest height of the result, in pixels
+     * @return the decoded image, or null if photo is not an image that can be decoded
+     * @throws IOException if photo cannot be read
+     */
+    public static BufferedImage decode(Path photo, Rectangle region, int width, int height) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(photo.toFile())) {
+            if (input == null) return null;
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+            if (!readers.hasNext()) return null;
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                Rectangle source = new Rectangle(0, 0, reader.getWidth(0), reader.getHeight(0));
+                if (region != null) source = source.intersection(region);
+                if (source.isEmpty()) return null;
+
+                // Skip rows and columns while keeping at least the requested resolution
+                int step = Math.max(1, Math.min(source.width / Math.max(1, width),
+                        source.height / Math.max(1, height)));
+                ImageReadParam param = reader.getDefaultReadParam();
+                param.setSourceRegion(source);
+                param.setSourceSubsampling(step, step, 0, 0);
+                return scale(reader.read(0, param), width, height);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * @return image scaled down to fit within width by height, or image itself if it already fits
+     */
+    private static BufferedImage scale(BufferedImage image, int width, int height) {
+        double ratio = Math.min((double) width / image.getWidth(), (double) height / image.getHeight());
+        if (ratio >= 1) return image;
+        int scaledWidth = Math.max(1, (int) Math.round(image.getWidth() * ratio));
+        int scaledHeight = Math.max(1, (int) Math.round(image.getHeight() * ratio));
+        BufferedImage scaled = new BufferedImage(scaledWidth, scaledHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = scaled.createGraphics();
+        graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        graphics.drawImage(image, 0, 0, scaledWidth, scaledHeight, null);
+        graphics.dispose();
+        return scaled;
+    }
+}
@@ -0,0 +1,42 @@
+package PhotoManaging;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.Dimension;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Iterator;
+
+/**
+ * An ImageProbe which reads the width and height of a photo file from its header, such as the SOF segment of a
+ * JPEG or the IHDR chunk of a PNG, without decoding any pixels.
+ * <p>
+ * Asking a reader for a size without reading the image is adapted from:
+ * https://docs.oracle.com/javase/8/docs/api/javax/imageio/ImageReader.html#getWidth-int- (17/10/26)
+ */
+class ImageProbe {
+
+    /**
+     * Reads the dimensions of the first image in photo.
+     *
+     * @param photo the photo file to probe
+     * @return the width and height of photo, in pixels
+     * @throws IOException if photo cannot be read or is not an image ImageIO understands
+     */
+    static Dimension dimensions(Path photo) throws IOException {
+        try (ImageInputStream input = ImageIO.createImageInputStream(photo.toFile())) {
+            Iterator<ImageReader> readers = input == null ? null : ImageIO.getImageReaders(input);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException("Unsupported image format: " + photo);
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(input, true, true);
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+}
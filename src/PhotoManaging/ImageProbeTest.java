@@ -0,0 +1,44 @@
+package PhotoManaging;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import javax.imageio.ImageIO;
+import java.awt.Dimension;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class ImageProbeTest extends TestCase {
+
+    private Path writeImage(String format, int width, int height) throws IOException {
+        Path file = Files.createTempFile("ImageProbeTest", "." + format);
+        ImageIO.write(new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB), format, file.toFile());
+        return file;
+    }
+
+    // Testing of ImageProbe
+
+    @Test
+    public void testDimensions() throws Exception {
+        for (String format : new String[]{"jpg", "png", "gif", "bmp"}) {
+            Path file = writeImage(format, 31, 17);
+            assertEquals(format, new Dimension(31, 17), ImageProbe.dimensions(file));
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void testUnsupported() throws Exception {
+        Path file = Files.createTempFile("ImageProbeTest", ".jpg");
+        try {
+            ImageProbe.dimensions(file);
+            fail("Expected IOException");
+        } catch (IOException e) {
+            // expected
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
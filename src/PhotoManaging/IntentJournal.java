@@ -0,0 +1,230 @@
+package PhotoManaging;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+
+/**
+ * An IntentJournal which records each rename or move of a photo file made by a PhotoManager before it is made, so
+ * that a crash part way through leaves enough behind to bring the files, the name history and FavList.txt back in
+ * step when the PhotoManager is next opened.
+ * <p>
+ * The journal is kept in RenameJournal.log in the root, one record per line:
+ * <pre>
+ * B TAB id TAB source TAB target TAB old name TAB new name     an intent, forced to disk before the file is touched
+ * C TAB id                                                   the intent was carried out and its history logged
+ * A TAB id                                                   the intent was abandoned, as the file could not be moved
+ * </pre>
+ * with fields escaped as in NameHistory.log. Intents begun at the same moment on different threads, as when many
+ * photos are tagged at once, are forced to disk together by whichever thread gets there first, so a bulk rename
+ * costs far fewer forces than it has files. Commit and abort records are forced lazily, since recovery can tell
+ * from the files whether an intent without one was carried out, following the steps of a FileMover. Once no intent
+ * is open the journal is deleted, which happens when a PhotoManager is flushed and, so the journal does not grow
+ * through a long session of renames, whenever no intent is open after every CHECKPOINT_INTENTS intents.
+ */
+class IntentJournal {
+
+    /* The name of the journal in the root */
+    static final String FILE_NAME = "RenameJournal.log";
+
+    /* The number of intents settled after which the journal is deleted as soon as no intent is open */
+    static final int CHECKPOINT_INTENTS = 256;
+
+    /* The journal file */
+    private final Path file;
+
+    /* Appends to the journal file, or null if it is not open */
+    private JournalWriter writer;
+
+    /* The id of the next intent */
+    private long nextId = 1;
+
+    /* The ids of the intents begun but not yet committed or abandoned */
+    private final HashSet<Long> open = new HashSet<>();
+
+    /* The number of intents committed or abandoned since the journal was last deleted */
+    private int settled;
+
+    /* The number of intents appended so far */
+    private long appended;
+
+    /* The number of intents known to be forced to disk, guarded by forceLock */
+    private long forced;
+
+    /* Held by the thread forcing intents to disk on behalf of every thread waiting */
+    private final Object forceLock = new Object();
+
+    /**
+     * Initialize the IntentJournal of root, which recover should be called on before any intent is begun.
+     *
+     * @param root the root of the PhotoManager whose renames are journaled
+     */
+    IntentJournal(Path root) {
+        this.file = root.resolve(FILE_NAME);
+    }
+
+    /**
+     * Records that source is about to be moved to target, renaming its Photo from oldName to newName, and waits
+     * until the record is on disk.
+     *
+     * @param source  the photo file now
+     * @param target  the photo file once moved
+     * @param oldName the name of the Photo now
+     * @param newName the name of the Photo once moved
+     * @return the id of the intent, to be passed to commit or abort
+     * @throws IOException if the intent cannot be recorded, in which case the file must not be moved
+     */
+    long begin(Path source, Path target, String oldName, String newName) throws IOException {
+        long id;
+        long count;
+        synchronized (this) {
+            id = nextId++;
+            writer().append("B\t" + id + "\t" + NameHistoryStore.escape(source.toString()) + "\t"
+                    + NameHistoryStore.escape(target.toString()) + "\t" + NameHistoryStore.escape(oldName) + "\t"
+                    + NameHistoryStore.escape(newName) + "\n");
+            open.add(id);
+            count = ++appended;
+        }
+        force(count);
+        return id;
+    }
+
+    /**
+     * Records that the intent id was carried out.
+     *
+     * @param id the intent returned by begin
+     * @throws IOException if the record cannot be written
+     */
+    synchronized void commit(long id) throws IOException {
+        end("C", id);
+    }
+
+    /**
+     * Records that the intent id was abandoned, leaving the file where it was.
+     *
+     * @param id the intent returned by begin
+     * @throws IOException if the record cannot be written
+     */
+    synchronized void abort(long id) throws IOException {
+        end("A", id);
+    }
+
+    /**
+     * Deletes the journal if no intent is open, so it does not grow for the life of the program.
+     *
+     * @throws IOException if the journal cannot be deleted
+     */
+    synchronized void checkpoint() throws IOException {
+        if (!open.isEmpty()) return;
+        JournalWriter.close(file);
+        writer = null;
+        Files.deleteIfExists(file);
+        settled = 0;
+    }
+
+    /**
+     * Settles every intent left open by a crash. An intent whose target exists and whose source does not was
+     * carried out, so it is rolled forward by logging its new name if that was lost. An intent whose source still
+     * exists was never carried out, so it is rolled back by forgetting it. The journal is then deleted.
+     *
+     * @return the old name of each Photo rolled forward, mapped to its new name
+     * @throws IOException if the journal cannot be read or the history written
+     */
+    synchronized LinkedHashMap<String, String> recover() throws IOException {
+        LinkedHashMap<Long, String[]> unsettled = new LinkedHashMap<>();
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                try {
+                    long id = Long.parseLong(fields[1]);
+                    nextId = Math.max(nextId, id + 1);
+                    if (fields[0].equals("B") && fields.length == 6) {
+                        unsettled.put(id, fields);
+                    } else if (fields[0].equals("C") || fields[0].equals("A")) {
+                        unsettled.remove(id);
+                    }
+                } catch (RuntimeException e) {
+                    // A record cut short by the crash, which was never forced and so was never acted on
+                }
+            }
+        } catch (NoSuchFileException e) {
+            return new LinkedHashMap<>();   // nothing was open when the program last ended
+        }
+
+        LinkedHashMap<String, String> rolledForward = new LinkedHashMap<>();
+        for (String[] intent : unsettled.values()) {
+            Path source = Paths.get(NameHistoryStore.unescape(intent[2]));
+            Path target = Paths.get(NameHistoryStore.unescape(intent[3]));
+            String oldName = NameHistoryStore.unescape(intent[4]);
+            String newName = NameHistoryStore.unescape(intent[5]);
+            // A copy to another file system cut short is thrown away, and one left complete is kept
+            Files.deleteIfExists(FileMover.partFile(target));
+            // As is a rename whose link to the target was made before the program ended, unless the two paths only
+            // differ in case on a file system that ignores it
+            if (Files.exists(source) && Files.exists(target) && (Files.isSameFile(source, target)
+                    ? !source.toRealPath().equals(target.toRealPath()) : FileMover.sameContents(source, target))) {
+                Files.delete(source);
+            }
+            boolean moved = Files.exists(target) && !Files.exists(source);
+            if (moved && !oldName.equals(newName)) {
+                NameHistoryStore history = NameHistoryStore.forDirectory(target.getParent());
+                if (!newName.equals(history.latestName(Photo.baseName(newName)))) history.append(oldName, newName);
+                rolledForward.put(oldName, newName);
+            } else if (!moved && !Files.exists(source)) {
+                System.err.println("Could not recover the move of " + source + " to " + target
+                        + ", as neither file exists");
+            }
+        }
+        checkpoint();
+        return rolledForward;
+    }
+
+    /**
+     * Appends an end record of kind for the intent id, then deletes the journal if enough intents have been settled
+     * since it was last deleted and none is open.
+     */
+    private void end(String kind, long id) throws IOException {
+        if (!open.remove(id)) return;
+        writer().append(kind + "\t" + id + "\n");
+        if (++settled >= CHECKPOINT_INTENTS && open.isEmpty()) {
+            // The record is already written, so the intent stays settled even if the journal cannot be deleted
+            try {
+                checkpoint();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * @return the JournalWriter of the journal, opening it if it is not open
+     */
+    private JournalWriter writer() throws IOException {
+        if (writer == null) writer = JournalWriter.forFile(file);
+        return writer;
+    }
+
+    /**
+     * Waits until at least the first count intents are on disk, forcing them if no other thread is already.
+     */
+    private void force(long count) throws IOException {
+        synchronized (forceLock) {
+            if (forced >= count) return;    // forced along with another thread's intent
+            long upTo;
+            JournalWriter journal;
+            synchronized (this) {
+                upTo = appended;
+                journal = writer;
+            }
+            journal.sync();
+            forced = upTo;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package PhotoManaging;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Map;
+
+public class IntentJournalTest extends TestCase {
+
+    private Path root;
+
+    @Override
+    protected void setUp() throws Exception {
+        root = Files.createTempDirectory("IntentJournalTest");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TempDirectories.delete(root);
+    }
+
+    @Test
+    public void testRecoverRollsForward() throws Exception {
+        Path source = Files.createFile(root.resolve("a.jpg"));
+        Path target = root.resolve("a @beach.jpg");
+        new IntentJournal(root).begin(source, target, "a", "a @beach");
+        Files.move(source, target);     // the program ends before the new name is logged
+
+        Map<String, String> renamed = new IntentJournal(root).recover();
+        assertEquals("a @beach", renamed.get("a"));
+        assertEquals("a @beach", NameHistoryStore.forDirectory(root).latestName("a"));
+        assertFalse(Files.exists(root.resolve(IntentJournal.FILE_NAME)));
+    }
+
+    @Test
+    public void testRecoverRollsBack() throws Exception {
+        Path source = Files.createFile(root.resolve("b.jpg"));
+        new IntentJournal(root).begin(source, root.resolve("b @beach.jpg"), "b", "b @beach");
+
+        assertTrue(new IntentJournal(root).recover().isEmpty());
+        assertNull(NameHistoryStore.forDirectory(root).latestName("b"));
+        assertFalse(Files.exists(root.resolve(IntentJournal.FILE_NAME)));
+    }
+
+    @Test
+    public void testRecoverFinishesCopy() throws Exception {
+        Path source = Files.write(root.resolve("g.jpg"), new byte[]{1, 2, 3});
+        Path other = Files.createDirectory(root.resolve("other"));
+        Path target = other.resolve("g.jpg");
+        new IntentJournal(root).begin(source, target, "g", "g");
+        Files.copy(source, target);     // the program ends before the source is deleted
+        Files.write(FileMover.partFile(other.resolve("h.jpg")), new byte[]{4});
+
+        new IntentJournal(root).recover();
+        assertFalse(Files.exists(source));
+        assertTrue(Files.exists(target));
+    }
+
+    @Test
+    public void testRecoverFinishesLinkedRename() throws Exception {
+        Path source = Files.write(root.resolve("l.jpg"), new byte[]{1, 2, 3});
+        Path target = root.resolve("l @tag.jpg");
+        new IntentJournal(root).begin(source, target, "l", "l @tag");
+        Files.createLink(target, source);   // the program ends before the source is deleted
+
+        assertEquals("l @tag", new IntentJournal(root).recover().get("l"));
+        assertFalse(Files.exists(source));
+        assertTrue(Files.exists(target));
+    }
+
+    @Test
+    public void testRecoverDiscardsPartialCopy() throws Exception {
+        Path source = Files.write(root.resolve("h.jpg"), new byte[]{1, 2, 3});
+        Path target = Files.createDirectory(root.resolve("other")).resolve("h.jpg");
+        new IntentJournal(root).begin(source, target, "h", "h");
+        Files.write(FileMover.partFile(target), new byte[]{1});   // the program ends part way through the copy
+
+        new IntentJournal(root).recover();
+        assertTrue(Files.exists(source));
+        assertFalse(Files.exists(FileMover.partFile(target)));
+    }
+
+    @Test
+    public void testCheckpointKeepsOpenIntents() throws Exception {
+        IntentJournal journal = new IntentJournal(root);
+        long first = journal.begin(root.resolve("c.jpg"), root.resolve("c @x.jpg"), "c", "c @x");
+        long second = journal.begin(root.resolve("d.jpg"), root.resolve("d @x.jpg"), "d", "d @x");
+        journal.commit(first);
+        journal.checkpoint();
+        assertTrue(Files.exists(root.resolve(IntentJournal.FILE_NAME)));
+
+        journal.abort(second);
+        journal.checkpoint();
+        assertFalse(Files.exists(root.resolve(IntentJournal.FILE_NAME)));
+    }
+
+    @Test
+    public void testCheckpointAfterManyIntents() throws Exception {
+        IntentJournal journal = new IntentJournal(root);
+        Path file = root.resolve(IntentJournal.FILE_NAME);
+        long held = journal.begin(root.resolve("e.jpg"), root.resolve("e @x.jpg"), "e", "e @x");
+        for (int i = 0; i < IntentJournal.CHECKPOINT_INTENTS; i++) {
+            journal.commit(journal.begin(root.resolve(i + ".jpg"), root.resolve(i + " @x.jpg"), "" + i, i + " @x"));
+        }
+        // The journal is kept while an intent is open, and deleted once none is
+        assertTrue(Files.exists(file));
+        journal.commit(held);
+        assertFalse(Files.exists(file));
+
+        journal.commit(journal.begin(root.resolve("f.jpg"), root.resolve("f @x.jpg"), "f", "f @x"));
+        assertTrue(Files.exists(file));
+    }
+
+    @Test
+    public void testFavouriteRenamedOnRecovery() throws Exception {
+        Path source = Files.createFile(root.resolve("e.jpg"));
+        Path target = root.resolve("e @sea.jpg");
+        Files.write(root.resolve("FavList.txt"), Arrays.asList("e"), StandardCharsets.UTF_8);
+        new IntentJournal(root).begin(source, target, "e", "e @sea");
+        Files.move(source, target);
+
+        PhotoManager pm = new PhotoManager(root);
+        assertEquals(1, pm.getFavPhotos().size());
+        assertEquals("e @sea", pm.getFavPhotos().iterator().next().toString());
+        pm.flush();
+    }
+
+    @Test
+    public void testRenameJournaled() throws Exception {
+        Files.createFile(root.resolve("f.jpg"));
+        PhotoManager pm = new PhotoManager(root);
+        Photo photo = pm.getPhotoMaster().get(0);
+        pm.addTag("sun", photo);
+        assertEquals("f @sun.jpg", photo.getPath().getFileName().toString());
+        pm.flush();
+        assertFalse(Files.exists(root.resolve(IntentJournal.FILE_NAME)));
+    }
+}
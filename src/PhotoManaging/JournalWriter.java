@@ -0,0 +1,294 @@
+package PhotoManaging;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A JournalWriter which appends records to a log file such as NameHistory.log.
+ * <p>
+ * Each log file has a single JournalWriter, shared by everything writing to it, which encodes records through one
+ * reusable buffer. At most MAX_OPEN_FILES log files are kept open at once, so a library of many directories does not
+ * run out of file descriptors: opening another closes the one used least recently, which is opened again when it is
+ * next written to. How often the records are forced to disk is set by the SyncPolicy named by the
+ * photomanager.journal.sync system property, GROUP_COMMIT if it is not set.
+ * <p>
+ * Forcing appended records to disk is adapted from:
+ * https://docs.oracle.com/javase/8/docs/api/java/nio/channels/FileChannel.html#force-boolean- (17/10/26)
+ */
+class JournalWriter {
+
+    /**
+     * When appended records are forced to disk.
+     */
+    enum SyncPolicy {
+        /* Force every record before append returns */
+        EVERY_WRITE,
+        /* Force all records appended within GROUP_COMMIT_MILLIS of each other together */
+        GROUP_COMMIT,
+        /* Leave forcing to the operating system */
+        NONE
+    }
+
+    /* How long a record may wait to be forced under GROUP_COMMIT */
+    static final long GROUP_COMMIT_MILLIS = 200;
+
+    /* The most log files kept open at once */
+    static final int MAX_OPEN_FILES = 64;
+
+    /* The system property naming the SyncPolicy of every log file */
+    static final String SYNC_PROPERTY = "photomanager.journal.sync";
+
+    /* The SyncPolicy of every log file */
+    static final SyncPolicy POLICY = syncPolicy(System.getProperty(SYNC_PROPERTY));
+
+    /* The JournalWriter of every log file in use, whether or not the file is open now */
+    private static final HashMap<Path, JournalWriter> WRITERS = new HashMap<>();
+
+    /* The JournalWriters whose files are open, least recently used first, guarded by WRITERS */
+    private static final LinkedHashSet<JournalWriter> OPEN = new LinkedHashSet<>();
+
+    /* The thread on which group commits are performed and least recently used files are closed */
+    private static final ScheduledExecutorService SYNCER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "Journal sync");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(JournalWriter::closeAll, "Journal shutdown"));
+    }
+
+    /* The log file */
+    private final Path file;
+
+    /* The open log file, or null if it has been closed to make way for another */
+    private FileChannel channel;
+
+    /* Encodes records into buffer */
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+    /* The buffer each record is encoded into before being written, or null while the file is closed */
+    private ByteBuffer buffer;
+
+    /* The group commit waiting to run, or null if none is pending */
+    private ScheduledFuture<?> pendingSync;
+
+    /* True if records have been written since the file was last forced */
+    private boolean unsynced;
+
+    /**
+     * Initialize the JournalWriter of file, which is opened when first used.
+     *
+     * @param file see above instance parameter
+     */
+    private JournalWriter(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Returns the JournalWriter for file, opening file if it is not open yet.
+     *
+     * @param file the log file to append to
+     * @return the shared JournalWriter for file
+     * @throws IOException if file cannot be opened
+     */
+    static JournalWriter forFile(Path file) throws IOException {
+        Path key = file.toAbsolutePath().normalize();
+        JournalWriter writer;
+        synchronized (WRITERS) {
+            writer = WRITERS.computeIfAbsent(key, JournalWriter::new);
+        }
+        synchronized (writer) {
+            writer.channel();
+        }
+        return writer;
+    }
+
+    /**
+     * Forces and closes the JournalWriter for file, if one is in use, so that file can be replaced or deleted.
+     * The next call to forFile opens it again.
+     *
+     * @param file the log file to close
+     * @throws IOException if file cannot be forced or closed
+     */
+    static void close(Path file) throws IOException {
+        JournalWriter writer;
+        synchronized (WRITERS) {
+            writer = WRITERS.remove(file.toAbsolutePath().normalize());
+            if (writer != null) OPEN.remove(writer);
+        }
+        if (writer != null) writer.close();
+    }
+
+    /**
+     * Returns the SyncPolicy named by name, or GROUP_COMMIT if name is null or names no SyncPolicy.
+     *
+     * @param name the name of a SyncPolicy, such as "EVERY_WRITE"
+     * @return the SyncPolicy named
+     */
+    static SyncPolicy syncPolicy(String name) {
+        if (name == null) return SyncPolicy.GROUP_COMMIT;
+        try {
+            return SyncPolicy.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown " + SYNC_PROPERTY + " " + name + ", using " + SyncPolicy.GROUP_COMMIT);
+            return SyncPolicy.GROUP_COMMIT;
+        }
+    }
+
+    /**
+     * Appends record to the end of the log file.
+     *
+     * @param record the text to append, including any line separators
+     * @return the position in the file at which record starts
+     * @throws IOException if record cannot be written
+     */
+    synchronized long append(CharSequence record) throws IOException {
+        FileChannel channel = channel();
+        long start = channel.size();
+        CharBuffer chars = CharBuffer.wrap(record);
+        encoder.reset();
+        CoderResult result;
+        do {
+            result = encoder.encode(chars, buffer, true);
+            drain(channel);
+        } while (result.isOverflow());
+        encoder.flush(buffer);
+        drain(channel);
+
+        unsynced = true;
+        if (POLICY == SyncPolicy.EVERY_WRITE) {
+            sync();
+        } else if (POLICY == SyncPolicy.GROUP_COMMIT && pendingSync == null) {
+            pendingSync = SYNCER.schedule(this::syncQuietly, GROUP_COMMIT_MILLIS, TimeUnit.MILLISECONDS);
+        }
+        return start;
+    }
+
+    /**
+     * @return the current length of the log file, which is where the next record will start
+     * @throws IOException if the length cannot be read
+     */
+    synchronized long position() throws IOException {
+        return channel().size();
+    }
+
+    /**
+     * Forces every record written so far to disk.
+     *
+     * @throws IOException if the file cannot be forced
+     */
+    synchronized void sync() throws IOException {
+        if (pendingSync != null) pendingSync.cancel(false);
+        pendingSync = null;
+        if (unsynced && channel != null) {
+            channel.force(false);
+            unsynced = false;
+        }
+    }
+
+    /**
+     * Returns the open log file, opening it if it has been closed to make way for another, and marks it as the most
+     * recently used.
+     */
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.APPEND);
+            buffer = ByteBuffer.allocateDirect(8192);
+        }
+        JournalWriter eldest = null;
+        synchronized (WRITERS) {
+            OPEN.remove(this);
+            OPEN.add(this);
+            if (OPEN.size() > MAX_OPEN_FILES) {
+                eldest = OPEN.iterator().next();
+                OPEN.remove(eldest);
+            }
+        }
+        // Closed on another thread, since closing needs the eldest's lock and this thread holds its own
+        if (eldest != null) SYNCER.execute(eldest::closeIfUnused);
+        return channel;
+    }
+
+    /**
+     * Forces and closes the log file, unless it has been used again since it was chosen to be closed.
+     */
+    private synchronized void closeIfUnused() {
+        synchronized (WRITERS) {
+            if (OPEN.contains(this)) return;
+        }
+        try {
+            close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the contents of buffer to channel and empties it.
+     */
+    private void drain(FileChannel channel) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Forces every record written so far to disk, reporting rather than throwing any error.
+     */
+    private void syncQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Forces and closes every open log file.
+     */
+    private static void closeAll() {
+        ArrayList<JournalWriter> writers;
+        synchronized (WRITERS) {
+            writers = new ArrayList<>(WRITERS.values());
+            WRITERS.clear();
+            OPEN.clear();
+        }
+        for (JournalWriter writer : writers) {
+            try {
+                writer.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Forces and closes the log file.
+     */
+    private synchronized void close() throws IOException {
+        sync();
+        if (channel != null) channel.close();
+        channel = null;
+        buffer = null;
+    }
+}
@@ -0,0 +1,44 @@
+package PhotoManaging;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class JournalWriterTest extends TestCase {
+
+    private Path directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("JournalWriterTest");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TempDirectories.delete(directory);
+    }
+
+    @Test
+    public void testReopenAfterEviction() throws Exception {
+        // Writing to more files than are kept open closes the first, which is opened again when next written to
+        JournalWriter first = JournalWriter.forFile(directory.resolve("0.log"));
+        first.append("a\n");
+        for (int i = 1; i <= JournalWriter.MAX_OPEN_FILES + 4; i++) {
+            JournalWriter.forFile(directory.resolve(i + ".log")).append(i + "\n");
+        }
+        assertSame(first, JournalWriter.forFile(directory.resolve("0.log")));
+        assertEquals(2, first.append("b\n"));
+        first.sync();
+        assertEquals("a\nb\n", new String(Files.readAllBytes(directory.resolve("0.log")), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSyncPolicy() {
+        assertEquals(JournalWriter.SyncPolicy.GROUP_COMMIT, JournalWriter.syncPolicy(null));
+        assertEquals(JournalWriter.SyncPolicy.EVERY_WRITE, JournalWriter.syncPolicy("every_write"));
+        assertEquals(JournalWriter.SyncPolicy.GROUP_COMMIT, JournalWriter.syncPolicy("sometimes"));
+    }
+}
@@ -0,0 +1,212 @@
+package PhotoManaging;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A LibraryIndex which remembers the listing of every directory under a PhotoManager's root, so a directory which
+ * has not changed since it was last listed does not need to be listed again.
+ * <p>
+ * The index is kept in LibraryIndex.txt in the root. For each directory it holds the directory's modification time
+ * and its photo files and subdirectories, in the order they were listed. Adding, removing or renaming a file changes
+ * the modification time of its directory, so a directory with the same modification time still has the same
+ * entries. The names and tags of the Photos are then worked out from the file names alone, without touching the
+ * files.
+ */
+class LibraryIndex {
+
+    /* The name of the index file in the root */
+    static final String FILE_NAME = "LibraryIndex.txt";
+
+    /* The first line of the index file, which changes if the format does */
+    private static final String HEADER = "PhotoManager library index 1";
+
+    /* A directory changed within this long of being listed may have changed again without its time changing */
+    static final long RACY_MILLIS = 2000;
+
+    /* The suffix marking a subdirectory among the entries of a Listing */
+    private static final String DIRECTORY_SUFFIX = "/";
+
+    /* The root whose directories are indexed */
+    private final Path root;
+
+    /* The Listing of each directory, by its path relative to root */
+    private final ConcurrentHashMap<String, Listing> listings = new ConcurrentHashMap<>();
+
+    /* True if a directory was listed with different entries from its recorded Listing */
+    private volatile boolean changed;
+
+    /**
+     * Initialize a new, empty LibraryIndex.
+     *
+     * @param root see above instance parameter
+     */
+    LibraryIndex(Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Reads the index of root, or returns an empty index if there is none or it cannot be read.
+     *
+     * @param root the root whose index is read
+     * @return the LibraryIndex of root
+     */
+    static LibraryIndex read(Path root) {
+        LibraryIndex index = new LibraryIndex(root);
+        try (BufferedReader reader = Files.newBufferedReader(root.resolve(FILE_NAME), StandardCharsets.UTF_8)) {
+            if (!HEADER.equals(reader.readLine())) return index;
+            Listing listing = null;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.split("\t", -1);
+                if (fields[0].equals("D") && fields.length == 4) {
+                    listing = new Listing(Long.parseLong(fields[2]), Long.parseLong(fields[3]), new ArrayList<>());
+                    index.listings.put(NameHistoryStore.unescape(fields[1]), listing);
+                } else if (fields[0].equals("E") && fields.length == 2 && listing != null) {
+                    listing.entries.add(NameHistoryStore.unescape(fields[1]));
+                } else {
+                    throw new IOException("Malformed line in " + FILE_NAME + ": " + line);
+                }
+            }
+        } catch (NoSuchFileException e) {
+            // The root has not been indexed yet
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();    // every directory is listed instead, and a new index written
+            index.listings.clear();
+        }
+        return index;
+    }
+
+    /**
+     * Writes this index to LibraryIndex.txt in the root, through a temporary file which then replaces it.
+     *
+     * @throws IOException if the index cannot be written
+     */
+    void write() throws IOException {
+        Path file = root.resolve(FILE_NAME);
+        Path temp = Files.createTempFile(root, "LibraryIndex", ".tmp");
+        try {
+            try (BufferedWriter writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(HEADER);
+                writer.write('\n');
+                for (Map.Entry<String, Listing> directory : listings.entrySet()) {
+                    Listing listing = directory.getValue();
+                    writer.write("D\t" + NameHistoryStore.escape(directory.getKey()) + "\t" + listing.modified
+                            + "\t" + listing.listed + "\n");
+                    for (String entry : listing.entries) {
+                        writer.write("E\t" + NameHistoryStore.escape(entry) + "\n");
+                    }
+                }
+            }
+            try {
+                Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Returns the recorded entries of directory if it has not changed since it was listed, where each entry is
+     * the name of a photo file, or the name of a subdirectory followed by "/".
+     *
+     * @param directory the directory about to be listed
+     * @param modified  the modification time of directory now, in milliseconds
+     * @return the entries of directory, or null if it must be listed again
+     */
+    List<String> entries(Path directory, long modified) {
+        Listing listing = listings.get(relative(directory));
+        if (listing == null || listing.modified != modified || listing.modified > listing.listed - RACY_MILLIS) {
+            return null;
+        }
+        return listing.entries;
+    }
+
+    /**
+     * Records the entries of directory, as returned by entries.
+     *
+     * @param directory the directory listed
+     * @param modified  the modification time of directory when it was listed, in milliseconds
+     * @param listed    when directory was listed, in milliseconds
+     * @param entries   the entries of directory, in the order they were listed
+     * @param previous  the index before directory was listed, used to notice whether its entries changed
+     */
+    void record(Path directory, long modified, long listed, List<String> entries, LibraryIndex previous) {
+        String key = relative(directory);
+        listings.put(key, new Listing(modified, listed, entries));
+        Listing old = previous.listings.get(key);
+        if (old == null || !old.entries.equals(entries)) changed = true;
+    }
+
+    /**
+     * Reuses the Listing of directory from previous, which entries returned.
+     *
+     * @param directory the directory not listed again
+     * @param previous  the index the Listing came from
+     */
+    void reuse(Path directory, LibraryIndex previous) {
+        String key = relative(directory);
+        listings.put(key, previous.listings.get(key));
+    }
+
+    /**
+     * Returns true if this index, made by a complete walk of the root, differs from previous, so it should be
+     * written.
+     *
+     * @param previous the index the walk started from
+     * @return whether this index needs writing
+     */
+    boolean differsFrom(LibraryIndex previous) {
+        // Every directory here was either reused from previous or recorded, so only removals remain to be noticed
+        return changed || listings.size() != previous.listings.size();
+    }
+
+    /**
+     * @return the entry naming subdirectory among the entries of its parent
+     */
+    static String directoryEntry(Path subdirectory) {
+        return subdirectory.getFileName() + DIRECTORY_SUFFIX;
+    }
+
+    /**
+     * @return true if entry names a subdirectory, rather than a photo file
+     */
+    static boolean isDirectoryEntry(String entry) {
+        return entry.endsWith(DIRECTORY_SUFFIX);
+    }
+
+    /**
+     * @return the path of directory relative to the root, using "/" between names
+     */
+    private String relative(Path directory) {
+        return root.relativize(directory).toString().replace('\\', '/');
+    }
+
+    /**
+     * The entries of one directory, and when they were listed.
+     */
+    private static final class Listing {
+        private final long modified;
+        private final long listed;
+        private final List<String> entries;
+
+        Listing(long modified, long listed, List<String> entries) {
+            this.modified = modified;
+            this.listed = listed;
+            this.entries = entries;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package PhotoManaging;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+
+public class LibraryIndexTest extends TestCase {
+
+    /* A modification time long before any listing, so directories are never too new to trust */
+    private static final FileTime OLD = FileTime.fromMillis(946684800000L);
+
+    private Path root;
+    private Path sub;
+
+    @Override
+    protected void setUp() throws Exception {
+        root = Files.createTempDirectory("LibraryIndexTest");
+        sub = Files.createDirectory(root.resolve("sub"));
+        Files.createFile(root.resolve("a.jpg"));
+        Files.createFile(sub.resolve("b.jpg"));
+        Files.setLastModifiedTime(sub, OLD);
+        Files.setLastModifiedTime(root, OLD);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TempDirectories.delete(root);
+    }
+
+    /**
+     * Walks root from previous, writing the new index, and returns the photo files found.
+     */
+    private List<Path> walk(LibraryIndex previous) throws IOException {
+        DirectoryScanner scanner = new DirectoryScanner(root, new DirectoryLoad(), previous);
+        List<Path> photos = new ArrayList<>();
+        for (List<Path> batch = scanner.next(); batch != null; batch = scanner.next()) {
+            photos.addAll(batch);
+        }
+        if (scanner.index().differsFrom(previous)) scanner.index().write();
+        Files.setLastModifiedTime(root, OLD);   // writing the index touches the root
+        return photos;
+    }
+
+    @Test
+    public void testUnchangedDirectoryNotListed() throws Exception {
+        assertEquals(2, walk(LibraryIndex.read(root)).size());
+
+        // A file added behind an unchanged modification time is not seen, as the recorded listing is used
+        Files.createFile(sub.resolve("c.jpg"));
+        Files.setLastModifiedTime(sub, OLD);
+        assertEquals(2, walk(LibraryIndex.read(root)).size());
+
+        // Once the directory's time changes it is listed again
+        Files.setLastModifiedTime(sub, FileTime.fromMillis(OLD.toMillis() + 1000));
+        List<Path> photos = walk(LibraryIndex.read(root));
+        assertEquals(3, photos.size());
+        assertTrue(photos.contains(sub.resolve("c.jpg")));
+    }
+
+    @Test
+    public void testRecentlyListedDirectoryListedAgain() throws Exception {
+        walk(LibraryIndex.read(root));
+
+        // A directory changed just before it was listed may change again without its time moving
+        FileTime now = FileTime.fromMillis(System.currentTimeMillis());
+        Files.setLastModifiedTime(sub, now);
+        walk(LibraryIndex.read(root));
+        Files.createFile(sub.resolve("c.jpg"));
+        Files.setLastModifiedTime(sub, now);
+        assertEquals(3, walk(LibraryIndex.read(root)).size());
+    }
+
+    @Test
+    public void testDiffersFrom() throws Exception {
+        walk(LibraryIndex.read(root));
+        LibraryIndex previous = LibraryIndex.read(root);
+        DirectoryScanner scanner = new DirectoryScanner(root, new DirectoryLoad(), previous);
+        while (scanner.next() != null) {
+            // walk to the end
+        }
+        assertFalse(scanner.index().differsFrom(previous));
+    }
+}
@@ -0,0 +1,209 @@
+package PhotoManaging;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_DELETE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * A LibraryWatcher which keeps a PhotoManager in step with photo files added, deleted, renamed or changed outside the
+ * program, by watching every directory under its root.
+ * <p>
+ * Events arriving in a burst, such as a camera import of thousands of files, are gathered until the directories go
+ * quiet for QUIET_MILLIS, or for at most MAX_DELAY_MILLIS, and then applied as one batch: each directory touched is
+ * listed once and compared with the Photos the PhotoManager holds for it. Renames made by the program itself are
+ * found to match and change nothing.
+ * <p>
+ * A directory that cannot be watched, as when the operating system's limit on watches is reached, is reported and
+ * then listed again every RESCAN_MILLIS instead, trying once more to watch it each time. Files added to or deleted
+ * from it are found late, and changes to the contents of its files are not found at all.
+ */
+class LibraryWatcher {
+
+    /* How long the directories must be quiet before a burst of events is applied */
+    static final long QUIET_MILLIS = 300;
+
+    /* The longest a burst of events is held before it is applied, even if more keep arriving */
+    static final long MAX_DELAY_MILLIS = 2000;
+
+    /* How often the directories that could not be watched are listed again */
+    static final long RESCAN_MILLIS = 30000;
+
+    /* The PhotoManager kept in step */
+    private final PhotoManager pm;
+
+    /* Delivers the events of every watched directory */
+    private final WatchService service;
+
+    /* The directory each WatchKey watches, only used on the watching thread */
+    private final HashMap<WatchKey, Path> directories = new HashMap<>();
+
+    /* The directories that could not be watched, only used on the watching thread */
+    private final LinkedHashSet<Path> unwatched = new LinkedHashSet<>();
+
+    /* The thread which waits for events and applies them */
+    private final Thread thread;
+
+    /**
+     * Initialize a LibraryWatcher for pm, which does nothing until started.
+     *
+     * @param pm see above instance parameter
+     * @throws IOException if the file system cannot be watched
+     */
+    LibraryWatcher(PhotoManager pm) throws IOException {
+        this.pm = pm;
+        this.service = pm.getPath().getFileSystem().newWatchService();
+        this.thread = new Thread(this::watch, "Library watcher");
+        thread.setDaemon(true);
+    }
+
+    /**
+     * Starts watching, if not already started.
+     */
+    synchronized void start() {
+        if (thread.getState() == Thread.State.NEW) thread.start();
+    }
+
+    /**
+     * Stops watching for good.
+     */
+    void close() {
+        try {
+            service.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Registers every directory, then applies each burst of events until closed.
+     */
+    private void watch() {
+        try {
+            register(pm.getPath(), null);
+            long lastRescan = System.currentTimeMillis();
+            while (true) {
+                LinkedHashSet<Path> changedDirectories = new LinkedHashSet<>();
+                LinkedHashSet<Path> modifiedFiles = new LinkedHashSet<>();
+                WatchKey key;
+                if (unwatched.isEmpty()) {
+                    key = service.take();
+                } else {
+                    long untilRescan = lastRescan + RESCAN_MILLIS - System.currentTimeMillis();
+                    key = untilRescan > 0 ? service.poll(untilRescan, TimeUnit.MILLISECONDS) : null;
+                    if (key == null) {
+                        rescan(changedDirectories);
+                        lastRescan = System.currentTimeMillis();
+                    }
+                }
+                long first = System.currentTimeMillis();
+                while (key != null) {
+                    collect(key, changedDirectories, modifiedFiles);
+                    long waited = System.currentTimeMillis() - first;
+                    if (waited >= MAX_DELAY_MILLIS) break;
+                    key = service.poll(Math.min(QUIET_MILLIS, MAX_DELAY_MILLIS - waited), TimeUnit.MILLISECONDS);
+                }
+                try {
+                    pm.sync(changedDirectories, modifiedFiles);
+                } catch (Exception e) {
+                    e.printStackTrace();    // the next event in these directories tries again
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // Watching has been stopped
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Records the directories and photo files affected by the events of key, watching any new directory.
+     */
+    private void collect(WatchKey key, Set<Path> changedDirectories, Set<Path> modifiedFiles) throws IOException {
+        Path directory = directories.get(key);
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {     // events were lost, so check every directory
+                changedDirectories.addAll(directories.values());
+                continue;
+            }
+            if (directory == null) continue;
+            Path child = directory.resolve((Path) event.context());
+            if (event.kind() == ENTRY_CREATE && Files.isDirectory(child, LinkOption.NOFOLLOW_LINKS)) {
+                register(child, changedDirectories);
+            } else if (event.kind() == ENTRY_DELETE && directories.containsValue(child)) {
+                // Every directory within the deleted one is gone too, along with its Photos
+                for (Path watched : directories.values()) {
+                    if (watched.startsWith(child)) changedDirectories.add(watched);
+                }
+            } else if (DirectoryScanner.isPhoto(child)) {
+                if (event.kind() == ENTRY_MODIFY) {
+                    modifiedFiles.add(child);
+                } else {
+                    changedDirectories.add(directory);
+                }
+            }
+        }
+        if (!key.reset()) directories.remove(key);    // the directory is gone
+    }
+
+    /**
+     * Tries again to watch each directory that could not be watched, adding every such directory, and any new one
+     * within it, to changedDirectories so that it is listed.
+     */
+    private void rescan(Set<Path> changedDirectories) throws IOException {
+        for (Path directory : new ArrayList<>(unwatched)) {
+            if (Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS)) {
+                register(directory, changedDirectories);
+            } else {
+                unwatched.remove(directory);
+                changedDirectories.add(directory);  // it is gone, along with its Photos
+            }
+        }
+    }
+
+    /**
+     * Watches start and every directory within it, adding each not watched before to registered unless it is null.
+     * A directory that cannot be watched is added to unwatched, and to registered, instead.
+     */
+    private void register(Path start, Set<Path> registered) throws IOException {
+        Files.walkFileTree(start, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) {
+                try {
+                    WatchKey key = dir.register(service, ENTRY_CREATE, ENTRY_DELETE, ENTRY_MODIFY);
+                    if (directories.put(key, dir) == null && registered != null) registered.add(dir);
+                    unwatched.remove(dir);
+                } catch (IOException e) {
+                    if (unwatched.add(dir)) {
+                        System.err.println("Could not watch " + dir + " (" + e + "), so it is checked every "
+                                + TimeUnit.MILLISECONDS.toSeconds(RESCAN_MILLIS) + " seconds instead");
+                    }
+                    if (registered != null) registered.add(dir);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) {
+                return FileVisitResult.CONTINUE;    // deleted again already, or unreadable
+            }
+        });
+    }
+}
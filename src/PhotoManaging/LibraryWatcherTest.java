@@ -0,0 +1,96 @@
+package PhotoManaging;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.BooleanSupplier;
+
+public class LibraryWatcherTest extends TestCase {
+
+    private Path root;
+    private PhotoManager pm;
+
+    @Override
+    protected void setUp() throws Exception {
+        root = Files.createTempDirectory("LibraryWatcherTest");
+        Files.createFile(root.resolve("a.jpg"));
+        pm = new PhotoManager(root);
+        pm.startWatching();
+        Thread.sleep(200);     // let every directory be registered
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        pm.stopWatching();
+        pm.flush();
+        TempDirectories.delete(root);
+    }
+
+    /**
+     * Waits up to ten seconds for condition to hold.
+     */
+    private static boolean eventually(BooleanSupplier condition) throws InterruptedException {
+        for (int i = 0; i < 100; i++) {
+            if (condition.getAsBoolean()) return true;
+            Thread.sleep(100);
+        }
+        return condition.getAsBoolean();
+    }
+
+    /**
+     * @return true if pm has a Photo named name
+     */
+    private boolean hasPhoto(String name) {
+        synchronized (pm) {
+            for (Photo photo : pm.getPhotoMaster()) {
+                if (photo.toString().equals(name)) return true;
+            }
+            return false;
+        }
+    }
+
+    @Test
+    public void testFilesAddedAndDeleted() throws Exception {
+        Files.createFile(root.resolve("b @beach.jpg"));
+        assertTrue(eventually(() -> hasPhoto("b @beach")));
+        assertTrue(pm.getTagMaster().contains("beach"));
+
+        Files.delete(root.resolve("b @beach.jpg"));
+        assertTrue(eventually(() -> !hasPhoto("b @beach")));
+        assertFalse(pm.getTagMaster().contains("beach"));
+        assertTrue(hasPhoto("a"));
+    }
+
+    @Test
+    public void testNewDirectory() throws Exception {
+        Path sub = Files.createDirectory(root.resolve("sub"));
+        Files.createFile(sub.resolve("c.jpg"));
+        assertTrue(eventually(() -> hasPhoto("c")));
+
+        Files.createFile(sub.resolve("d.jpg"));
+        assertTrue(eventually(() -> hasPhoto("d")));
+    }
+
+    @Test
+    public void testBurst() throws Exception {
+        for (int i = 0; i < 200; i++) {
+            Files.createFile(root.resolve("burst" + i + ".jpg"));
+        }
+        assertTrue(eventually(() -> {
+            synchronized (pm) {
+                return pm.getPhotoMaster().size() == 201;
+            }
+        }));
+    }
+
+    @Test
+    public void testOwnRenameIgnored() throws Exception {
+        Photo photo = pm.getPhotoMaster().get(0);
+        pm.addTag("tagged", photo);
+        Thread.sleep(LibraryWatcher.QUIET_MILLIS * 3);
+        assertEquals(1, pm.getPhotoMaster().size());
+        assertSame(photo, pm.getPhotoMaster().get(0));
+    }
+}
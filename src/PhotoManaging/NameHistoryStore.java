@@ -0,0 +1,695 @@
+package PhotoManaging;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A NameHistoryStore which records every name change of the Photos in one directory.
+ * <p>
+ * Changes are appended to NameHistory.log, one record per line:
+ * <pre>
+ * #PhotoManager name history v1
+ * base name TAB epoch millis TAB old name TAB new name
+ * </pre>
+ * where the base name is that of the new name, and tabs, newlines and backslashes within a field are escaped with a
+ * backslash. Alongside it, NameHistory.idx lists the byte offset and length of every record under the base
+ * names it concerns, so the history of one Photo can be read without scanning the log. The index is brought up to
+ * date from the log whenever it falls behind, and a directory's old NameHistory.txt is converted into the log.
+ * <p>
+ * Opening a NameHistoryStore only reads, so the history of a read-only directory can still be shown. Converting
+ * NameHistory.txt, ending a log cut short by a crash with a newline and writing the index are all put off until
+ * the first change is written; until then an old NameHistory.txt is read as it is and the index kept in memory.
+ * <p>
+ * Histories are keyed by base name rather than by an id stored with the photo file, since a file carries nothing
+ * else that survives a rename. uniqueName keeps base names distinct within a directory, but a Photo that is given
+ * the base name of one deleted or moved away earlier takes over that Photo's history until compact drops it.
+ * <p>
+ * compact rewrites the log without the history of deleted Photos or names beyond a HistoryRetention, rotating the
+ * old log into a NameHistory-timestamp.log.gz archive first.
+ */
+class NameHistoryStore {
+
+    /* The name of the log of name changes */
+    static final String JOURNAL_NAME = "NameHistory.log";
+
+    /* The name of the offset index of the log */
+    static final String INDEX_NAME = "NameHistory.idx";
+
+    /* The name of the free text name history used before NameHistory.log */
+    static final String LEGACY_NAME = "NameHistory.txt";
+
+    /* The start and end of the name of each compressed archive of an old log, around its timestamp */
+    static final String ARCHIVE_PREFIX = "NameHistory-";
+    static final String ARCHIVE_SUFFIX = ".log.gz";
+
+    /* The first line of every log, identifying its format */
+    static final String HEADER = "#PhotoManager name history v1";
+
+    /* The NameHistoryStore of every directory opened so far */
+    private static final HashMap<Path, NameHistoryStore> OPEN = new HashMap<>();
+
+    /* Why each directory whose name history could not be opened failed, so it is not tried again by every Photo */
+    private static final HashMap<Path, Failure> FAILED = new HashMap<>();
+
+    /* How long after a directory's name history could not be opened it is tried again */
+    static final long RETRY_MILLIS = 60000;
+
+    /* The log of name changes */
+    private final Path journalPath;
+
+    /* The offset index of the log */
+    private final Path indexPath;
+
+    /* The free text name history used before the log, converted when the first change is written */
+    private final Path legacyPath;
+
+    /* The offset and length of each record concerning each base name, packed by pack() */
+    private final HashMap<String, Locations> locationsByBaseName = new HashMap<>();
+
+    /* The records of NameHistory.txt while it is not yet converted, or null if there is nothing to convert */
+    private ArrayList<Record> legacyRecords;
+
+    /* Whether the index file differs from locationsByBaseName, and so is rewritten before the first write */
+    private boolean indexOutOfDate;
+
+    /* Whether the log and index have been made ready for writing */
+    private boolean preparedForWriting;
+
+    /**
+     * Opens the name history of directory for reading, reading its NameHistory.txt if it has not been converted yet
+     * and bringing the index in memory up to date. Nothing is written until the first change is.
+     *
+     * @param directory the directory whose name history is opened
+     * @throws IOException if the history or its index cannot be read
+     */
+    NameHistoryStore(Path directory) throws IOException {
+        journalPath = directory.resolve(JOURNAL_NAME);
+        indexPath = directory.resolve(INDEX_NAME);
+        legacyPath = directory.resolve(LEGACY_NAME);
+
+        if (!Files.exists(journalPath)) {
+            if (Files.exists(legacyPath)) legacyRecords = ReadFileHandler.readNameHistory(legacyPath);
+            indexOutOfDate = Files.exists(indexPath);   // an index without a log is stale
+            return;
+        }
+
+        // A last line cut short by a crash is left for prepareForWriting to end
+        long complete = endOfLastLine(journalPath);
+        long covered = loadIndex();
+        if (covered > complete) {   // the log was replaced behind the index's back, so start again
+            locationsByBaseName.clear();
+            indexOutOfDate = true;
+            covered = 0;
+        }
+        if (covered < complete) {
+            catchUp(covered, false);
+        }
+    }
+
+    /**
+     * Returns the NameHistoryStore of directory, opening it if it has not been opened yet. A directory whose history
+     * could not be opened is not tried again for RETRY_MILLIS, or until forgetFailures is called for it; the same
+     * failure is thrown instead.
+     *
+     * @param directory the directory whose name history is wanted
+     * @return the shared NameHistoryStore of directory
+     * @throws IOException if the history or its index cannot be read
+     */
+    static NameHistoryStore forDirectory(Path directory) throws IOException {
+        Path key = directory.toAbsolutePath().normalize();
+        synchronized (OPEN) {
+            Failure failure = FAILED.get(key);
+            if (failure != null && System.currentTimeMillis() - failure.millis < RETRY_MILLIS) throw failure.cause;
+            NameHistoryStore store = OPEN.get(key);
+            if (store == null) {
+                try {
+                    store = new NameHistoryStore(key);
+                } catch (IOException e) {
+                    FAILED.put(key, new Failure(e));
+                    throw e;
+                }
+                FAILED.remove(key);
+                OPEN.put(key, store);
+            }
+            return store;
+        }
+    }
+
+    /**
+     * Returns the NameHistoryStore of directory, or null if it cannot be opened. A failure is only reported if the
+     * directory had not failed before, so a directory of many Photos, such as a read-only one, reports it once.
+     *
+     * @param directory the directory whose name history is wanted
+     * @return the shared NameHistoryStore of directory, or null
+     */
+    static NameHistoryStore forDirectoryOrNull(Path directory) {
+        Path key = directory.toAbsolutePath().normalize();
+        synchronized (OPEN) {
+            boolean failedBefore = FAILED.containsKey(key);
+            try {
+                return forDirectory(key);
+            } catch (IOException e) {
+                if (!failedBefore) e.printStackTrace();
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Lets the name history of every directory within root be tried again at once, as when root is opened again.
+     *
+     * @param root the directory whose name histories, and those of the directories within it, are tried again
+     */
+    static void forgetFailures(Path root) {
+        Path key = root.toAbsolutePath().normalize();
+        synchronized (OPEN) {
+            FAILED.keySet().removeIf(directory -> directory.startsWith(key));
+        }
+    }
+
+    /**
+     * Closes the name history of every directory within root, so it no longer holds its log open or its index in
+     * memory. A later forDirectory opens it again.
+     *
+     * @param root the directory whose name histories, and those of the directories within it, are closed
+     * @throws IOException if a log or index cannot be forced to disk
+     */
+    static void closeAll(Path root) throws IOException {
+        Path key = root.toAbsolutePath().normalize();
+        ArrayList<NameHistoryStore> closed = new ArrayList<>();
+        synchronized (OPEN) {
+            FAILED.keySet().removeIf(directory -> directory.startsWith(key));
+            OPEN.entrySet().removeIf(entry -> entry.getKey().startsWith(key) && closed.add(entry.getValue()));
+        }
+        for (NameHistoryStore store : closed) {
+            synchronized (store) {
+                JournalWriter.close(store.journalPath);
+                JournalWriter.close(store.indexPath);
+            }
+        }
+    }
+
+    /**
+     * Records a name change from oldName to newName at the current time.
+     *
+     * @param oldName the name before the change
+     * @param newName the name after the change
+     * @throws IOException if the record cannot be written
+     */
+    synchronized void append(String oldName, String newName) throws IOException {
+        prepareForWriting();
+        JournalWriter journal = JournalWriter.forFile(journalPath);
+        if (journal.position() == 0) journal.append(HEADER + "\n");
+
+        Record record = new Record(Photo.baseName(newName), System.currentTimeMillis(), oldName, newName);
+        long offset = journal.append(record.format());
+        index(record, offset, journal.position() - offset, true);
+    }
+
+    /**
+     * Makes the log and index ready for the first write: converts NameHistory.txt, rewrites an index that differs
+     * from the one in memory, and ends a last line of the log cut short by a crash with a newline.
+     */
+    private void prepareForWriting() throws IOException {
+        if (preparedForWriting) return;
+        if (legacyRecords != null) {
+            migrate();
+            locationsByBaseName.clear();
+            catchUp(0, false);
+        }
+        if (indexOutOfDate) rewriteIndex();
+        if (Files.exists(journalPath)) {
+            long complete = endOfLastLine(journalPath);
+            if (endWithNewline(journalPath) > complete) catchUp(complete, true);
+        }
+        preparedForWriting = true;
+    }
+
+    /**
+     * Returns every name the Photo with the given base name has been renamed from.
+     *
+     * @param baseName the base name of the Photo
+     * @return a new list of the distinct previous names, in the order they were recorded
+     * @throws IOException if the log cannot be read
+     */
+    synchronized ArrayList<String> names(String baseName) throws IOException {
+        LinkedHashSet<String> names = new LinkedHashSet<>();
+        for (Record record : records(baseName)) {
+            names.add(record.oldName);
+        }
+        return new ArrayList<>(names);
+    }
+
+    /**
+     * Returns the name the Photo with the given base name was last renamed to.
+     *
+     * @param baseName the base name of the Photo
+     * @return the new name of the latest record concerning baseName, or null if there is none
+     * @throws IOException if the log cannot be read
+     */
+    synchronized String latestName(String baseName) throws IOException {
+        ArrayList<Record> records = records(baseName);
+        return records.isEmpty() ? null : records.get(records.size() - 1).newName;
+    }
+
+    /**
+     * @return the records concerning baseName, in the order they were recorded, read using the index
+     */
+    private ArrayList<Record> records(String baseName) throws IOException {
+        ArrayList<Record> records = new ArrayList<>();
+        if (legacyRecords != null) {
+            for (Record record : legacyRecords) {
+                String oldBaseName = Photo.baseName(record.oldName);
+                if (oldBaseName.equals(baseName) || Photo.baseName(record.newName).equals(baseName)) {
+                    records.add(record);
+                }
+            }
+            return records;
+        }
+        Locations locations = locationsByBaseName.get(baseName);
+        if (locations != null) {
+            try (FileChannel channel = FileChannel.open(journalPath, StandardOpenOption.READ)) {
+                for (int i = 0; i < locations.size; i++) {
+                    long offset = offset(locations.packed[i]);
+                    ByteBuffer bytes = ByteBuffer.allocate(length(locations.packed[i]));
+                    while (bytes.hasRemaining()) {
+                        if (channel.read(bytes, offset + bytes.position()) < 0) break;
+                    }
+                    Record record = Record.parse(new String(bytes.array(), 0, bytes.position(),
+                            StandardCharsets.UTF_8));
+                    if (record != null) records.add(record);
+                }
+            }
+        }
+        return records;
+    }
+
+    /**
+     * Rewrites the log so that it only holds the latest retention.getMaxNamesPerPhoto() distinct previous names of
+     * each Photo whose base name is in liveBaseNames. The old log is first rotated into a compressed archive, and
+     * archives beyond retention.getMaxArchives() are deleted, oldest first.
+     *
+     * @param liveBaseNames the base names of the Photos still in the directory
+     * @param retention     how much history to keep
+     * @throws IOException if the log cannot be archived or rewritten
+     */
+    synchronized void compact(Set<String> liveBaseNames, HistoryRetention retention) throws IOException {
+        if (!Files.exists(journalPath)) return;
+        prepareForWriting();
+
+        // The newest record of each distinct previous name of each live Photo, oldest first
+        HashMap<String, LinkedHashMap<String, Record>> kept = new HashMap<>();
+        scan(journalPath, 0, (offset, length, line) -> {
+            Record record = Record.parse(line);
+            if (record == null) return;
+            String baseName = liveBaseNames.contains(record.id) ? record.id : Photo.baseName(record.oldName);
+            if (!liveBaseNames.contains(baseName)) return;
+            LinkedHashMap<String, Record> records = kept.computeIfAbsent(baseName, b -> new LinkedHashMap<>());
+            records.remove(record.oldName);
+            records.put(record.oldName, record);
+        });
+
+        ArrayList<Record> records = new ArrayList<>();
+        for (LinkedHashMap<String, Record> photoRecords : kept.values()) {
+            int skip = retention.getMaxNamesPerPhoto() == 0 ? 0
+                    : Math.max(0, photoRecords.size() - retention.getMaxNamesPerPhoto());
+            for (Record record : photoRecords.values()) {
+                if (skip-- <= 0) records.add(record);
+            }
+        }
+        records.sort(Comparator.comparingLong(record -> record.millis));
+
+        StringBuilder journal = new StringBuilder(HEADER).append("\n");
+        for (Record record : records) {
+            journal.append(record.format());
+        }
+
+        JournalWriter.close(journalPath);
+        JournalWriter.close(indexPath);
+        if (retention.getMaxArchives() > 0) archive();
+        pruneArchives(retention.getMaxArchives());
+
+        Path temp = journalPath.resolveSibling(JOURNAL_NAME + ".tmp");
+        Files.write(temp, journal.toString().getBytes(StandardCharsets.UTF_8));
+        try {
+            Files.move(temp, journalPath, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, journalPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        Files.deleteIfExists(indexPath);
+        locationsByBaseName.clear();
+        catchUp(0, true);
+    }
+
+    /**
+     * @return the size of the log in bytes, or 0 if nothing has been logged
+     * @throws IOException if the size cannot be read
+     */
+    synchronized long size() throws IOException {
+        return Files.exists(journalPath) ? Files.size(journalPath) : 0;
+    }
+
+    /**
+     * Copies the log into a new gzip archive named after the current time.
+     */
+    private void archive() throws IOException {
+        String stamp = new SimpleDateFormat("yyyyMMdd-HHmmss-SSS").format(new Date());
+        Path archivePath = journalPath.resolveSibling(ARCHIVE_PREFIX + stamp + ARCHIVE_SUFFIX);
+        try (OutputStream out = new GZIPOutputStream(Files.newOutputStream(archivePath))) {
+            Files.copy(journalPath, out);
+        }
+    }
+
+    /**
+     * Deletes all but the newest keep archives of the log.
+     */
+    private void pruneArchives(int keep) throws IOException {
+        ArrayList<Path> archives = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(journalPath.getParent(),
+                ARCHIVE_PREFIX + "*" + ARCHIVE_SUFFIX)) {
+            for (Path archivePath : stream) {
+                archives.add(archivePath);
+            }
+        }
+        Collections.sort(archives);     // the timestamps in the names sort oldest first
+        for (int i = 0; i < archives.size() - keep; i++) {
+            Files.delete(archives.get(i));
+        }
+    }
+
+    /**
+     * Files the record at offset under the base names of its old and new name in memory, and in the index file too
+     * if write is true.
+     */
+    private void index(Record record, long offset, long length, boolean write) throws IOException {
+        LinkedHashSet<String> baseNames = new LinkedHashSet<>(Arrays.asList(Photo.baseName(record.oldName),
+                Photo.baseName(record.newName)));
+        for (String baseName : baseNames) {
+            locationsByBaseName.computeIfAbsent(baseName, b -> new Locations()).add(pack(offset, length));
+            if (write) {
+                JournalWriter.forFile(indexPath).append(indexEntry(offset, length, baseName));
+            } else {
+                indexOutOfDate = true;
+            }
+        }
+    }
+
+    /**
+     * @return the line of the index file locating the record at offset under baseName
+     */
+    private static String indexEntry(long offset, long length, String baseName) {
+        return offset + "\t" + length + "\t" + escape(baseName) + "\n";
+    }
+
+    /**
+     * Replaces the index file with the index in memory, or deletes it if there is no log.
+     */
+    private void rewriteIndex() throws IOException {
+        JournalWriter.close(indexPath);
+        if (!Files.exists(journalPath)) {
+            Files.deleteIfExists(indexPath);
+        } else {
+            StringBuilder index = new StringBuilder();
+            for (Map.Entry<String, Locations> entry : locationsByBaseName.entrySet()) {
+                Locations locations = entry.getValue();
+                for (int i = 0; i < locations.size; i++) {
+                    index.append(indexEntry(offset(locations.packed[i]), length(locations.packed[i]),
+                            entry.getKey()));
+                }
+            }
+            Path temp = indexPath.resolveSibling(INDEX_NAME + ".tmp");
+            Files.write(temp, index.toString().getBytes(StandardCharsets.UTF_8));
+            Files.move(temp, indexPath, StandardCopyOption.REPLACE_EXISTING);
+        }
+        indexOutOfDate = false;
+    }
+
+    /**
+     * Reads the index file into locationsByBaseName, skipping any entry left incomplete by a crash, which is then
+     * dropped when the index is rewritten before the first write.
+     *
+     * @return the offset in the log up to which the index is complete
+     */
+    private long loadIndex() throws IOException {
+        if (!Files.exists(indexPath)) return 0;
+        if (endOfLastLine(indexPath) < Files.size(indexPath)) indexOutOfDate = true;
+        long[] covered = {0};
+        scan(indexPath, 0, (offset, length, line) -> {
+            String[] fields = line.split("\t", 3);
+            if (fields.length < 3) return;
+            try {
+                long recordOffset = Long.parseLong(fields[0]);
+                long recordLength = Long.parseLong(fields[1]);
+                locationsByBaseName.computeIfAbsent(unescape(fields[2]), b -> new Locations())
+                        .add(pack(recordOffset, recordLength));
+                covered[0] = Math.max(covered[0], recordOffset + recordLength);
+            } catch (NumberFormatException e) {
+                // skips a damaged entry; its record is indexed again if it is past the covered offset
+            }
+        });
+        return covered[0];
+    }
+
+    /**
+     * Indexes every record in the log from offset onwards, in memory and in the index file too if write is true.
+     */
+    private void catchUp(long from, boolean write) throws IOException {
+        scan(journalPath, from, (offset, length, line) -> {
+            Record record = Record.parse(line);
+            if (record != null) index(record, offset, length, write);
+        });
+    }
+
+    /**
+     * Converts the records read from NameHistory.txt into NameHistory.log, then renames NameHistory.txt so it is not
+     * converted again.
+     */
+    private void migrate() throws IOException {
+        StringBuilder journal = new StringBuilder(HEADER).append("\n");
+        for (Record record : legacyRecords) {
+            journal.append(record.format());
+        }
+        Path temp = journalPath.resolveSibling(JOURNAL_NAME + ".tmp");
+        Files.write(temp, journal.toString().getBytes(StandardCharsets.UTF_8));
+        Files.move(temp, journalPath, StandardCopyOption.REPLACE_EXISTING);
+        Files.move(legacyPath, legacyPath.resolveSibling(LEGACY_NAME + ".migrated"),
+                StandardCopyOption.REPLACE_EXISTING);
+        legacyRecords = null;
+    }
+
+    /**
+     * Passes every complete line of file from offset onwards to consumer, with its offset and length in bytes.
+     */
+    static void scan(Path file, long from, LineConsumer consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long position = from;
+            long lineStart = from;
+            while (channel.read(buffer, position) > 0) {
+                buffer.flip();
+                while (buffer.hasRemaining()) {
+                    byte b = buffer.get();
+                    position++;
+                    if (b == '\n') {
+                        consumer.accept(lineStart, position - lineStart, line.toString("UTF-8"));
+                        line.reset();
+                        lineStart = position;
+                    } else if (b != '\r') {
+                        line.write(b);
+                    }
+                }
+                buffer.clear();
+            }
+        }
+    }
+
+    /**
+     * Receives the lines found by scan.
+     */
+    interface LineConsumer {
+        void accept(long offset, long length, String line) throws IOException;
+    }
+
+    /**
+     * Appends a newline to file if its last line was left incomplete by a crash, so the next record starts cleanly.
+     *
+     * @return the size of file afterwards
+     */
+    private static long endWithNewline(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            if (size > 0 && endOfLastLine(channel) < size) {
+                channel.write(ByteBuffer.wrap(new byte[]{'\n'}), size);
+                size++;
+            }
+            return size;
+        }
+    }
+
+    /**
+     * @return the offset just past the last newline in file, or 0 if it has none
+     */
+    private static long endOfLastLine(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return endOfLastLine(channel);
+        }
+    }
+
+    private static long endOfLastLine(FileChannel channel) throws IOException {
+        ByteBuffer one = ByteBuffer.allocate(1);
+        for (long position = channel.size() - 1; position >= 0; position--) {
+            one.clear();
+            channel.read(one, position);
+            if (one.get(0) == '\n') return position + 1;
+        }
+        return 0;
+    }
+
+    /**
+     * Packs a record's offset (below 2^40) and length (below 2^24) into a single long.
+     */
+    private static long pack(long offset, long length) {
+        return offset << 24 | length;
+    }
+
+    private static long offset(long packed) {
+        return packed >>> 24;
+    }
+
+    private static int length(long packed) {
+        return (int) (packed & 0xFFFFFF);
+    }
+
+    /**
+     * Escapes the backslashes, tabs and line breaks in field.
+     */
+    static String escape(String field) {
+        StringBuilder escaped = new StringBuilder(field.length());
+        for (char c : field.toCharArray()) {
+            if (c == '\\') escaped.append("\\\\");
+            else if (c == '\t') escaped.append("\\t");
+            else if (c == '\n') escaped.append("\\n");
+            else if (c == '\r') escaped.append("\\r");
+            else escaped.append(c);
+        }
+        return escaped.toString();
+    }
+
+    /**
+     * Reverses escape.
+     */
+    static String unescape(String field) {
+        if (field.indexOf('\\') < 0) return field;
+        StringBuilder unescaped = new StringBuilder(field.length());
+        for (int i = 0; i < field.length(); i++) {
+            char c = field.charAt(i);
+            if (c == '\\' && i + 1 < field.length()) {
+                char next = field.charAt(++i);
+                unescaped.append(next == 't' ? '\t' : next == 'n' ? '\n' : next == 'r' ? '\r' : next);
+            } else {
+                unescaped.append(c);
+            }
+        }
+        return unescaped.toString();
+    }
+
+    /**
+     * A Failure which is why a directory's name history could not be opened, and when.
+     */
+    private static class Failure {
+        /* Why the name history could not be opened */
+        private final IOException cause;
+        /* When it could not be opened, in milliseconds since the epoch */
+        private final long millis = System.currentTimeMillis();
+
+        Failure(IOException cause) {
+            this.cause = cause;
+        }
+    }
+
+    /**
+     * A growable list of packed record locations.
+     */
+    private static class Locations {
+        private long[] packed = new long[2];
+        private int size;
+
+        void add(long location) {
+            if (size == packed.length) packed = Arrays.copyOf(packed, size * 2);
+            packed[size++] = location;
+        }
+    }
+
+    /**
+     * A single name change in the log.
+     */
+    static class Record {
+
+        /* The base name of the Photo after the change, which the history is filed under */
+        final String id;
+
+        /* When the change was made, in milliseconds since the epoch */
+        final long millis;
+
+        /* The name before the change */
+        final String oldName;
+
+        /* The name after the change */
+        final String newName;
+
+        Record(String id, long millis, String oldName, String newName) {
+            this.id = id;
+            this.millis = millis;
+            this.oldName = oldName;
+            this.newName = newName;
+        }
+
+        /**
+         * @return this Record as a line of the log, including its newline
+         */
+        String format() {
+            return escape(id) + "\t" + millis + "\t" + escape(oldName) + "\t" + escape(newName) + "\n";
+        }
+
+        /**
+         * Parses a line of the log.
+         *
+         * @param line the line, with or without its newline
+         * @return the Record on line, or null if line is the header or is not a valid record
+         */
+        static Record parse(String line) {
+            if (line.startsWith("#")) return null;
+            String[] fields = line.replace("\n", "").split("\t", -1);
+            if (fields.length != 4) return null;
+            try {
+                return new Record(unescape(fields[0]), Long.parseLong(fields[1]), unescape(fields[2]),
+                        unescape(fields[3]));
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package PhotoManaging;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+
+public class NameHistoryStoreTest extends TestCase {
+
+    private Path directory;
+
+    @Override
+    protected void setUp() throws Exception {
+        directory = Files.createTempDirectory("NameHistoryStoreTest");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        JournalWriter.close(directory.resolve(NameHistoryStore.JOURNAL_NAME));
+        JournalWriter.close(directory.resolve(NameHistoryStore.INDEX_NAME));
+        TempDirectories.delete(directory);
+    }
+
+    // Testing of NameHistoryStore
+
+    @Test
+    public void testAppendAndReopen() throws Exception {
+        NameHistoryStore store = new NameHistoryStore(directory);
+        store.append("cat", "cat @pet");
+        store.append("cat @pet", "cat @pet @cute");
+        store.append("dog", "dog @pet");
+
+        ArrayList<String> expected = new ArrayList<>(Arrays.asList("cat", "cat @pet"));
+        assertEquals(expected, store.names("cat"));
+        assertEquals(expected, new NameHistoryStore(directory).names("cat"));
+        assertEquals(new ArrayList<>(Arrays.asList("dog")), store.names("dog"));
+    }
+
+    @Test
+    public void testFailedOpenIsRemembered() throws Exception {
+        // A directory in place of the log cannot be opened as one
+        Files.createDirectory(directory.resolve(NameHistoryStore.JOURNAL_NAME));
+        IOException failure = null;
+        try {
+            NameHistoryStore.forDirectory(directory);
+            fail();
+        } catch (IOException e) {
+            failure = e;
+        }
+        Files.delete(directory.resolve(NameHistoryStore.JOURNAL_NAME));
+        try {
+            NameHistoryStore.forDirectory(directory);
+            fail();
+        } catch (IOException e) {
+            assertSame(failure, e);
+        }
+        assertNull(NameHistoryStore.forDirectoryOrNull(directory));
+
+        // Opening the directory again tries again
+        NameHistoryStore.forgetFailures(directory);
+        assertNotNull(NameHistoryStore.forDirectoryOrNull(directory));
+    }
+
+    @Test
+    public void testCloseAll() throws Exception {
+        NameHistoryStore store = NameHistoryStore.forDirectory(directory);
+        store.append("cat", "cat @pet");
+        NameHistoryStore.closeAll(directory);
+        NameHistoryStore reopened = NameHistoryStore.forDirectory(directory);
+        assertNotSame(store, reopened);
+        assertEquals("cat @pet", reopened.latestName("cat"));
+    }
+
+    @Test
+    public void testRebuildWithoutIndex() throws Exception {
+        NameHistoryStore store = new NameHistoryStore(directory);
+        store.append("cat", "cat @pet");
+        JournalWriter.close(directory.resolve(NameHistoryStore.INDEX_NAME));
+        Files.delete(directory.resolve(NameHistoryStore.INDEX_NAME));
+
+        assertEquals(new ArrayList<>(Arrays.asList("cat")), new NameHistoryStore(directory).names("cat"));
+    }
+
+    @Test
+    public void testMigrateLegacyHistory() throws Exception {
+        String sep = System.lineSeparator();
+        Files.write(directory.resolve(NameHistoryStore.LEGACY_NAME),
+                ("cat --> cat @pet [Mon Nov 06 10:15:30 EST 2017]" + sep + sep).getBytes(Charset.defaultCharset()));
+
+        NameHistoryStore store = new NameHistoryStore(directory);
+        assertEquals(new ArrayList<>(Arrays.asList("cat")), store.names("cat"));
+        assertFalse(Files.exists(directory.resolve(NameHistoryStore.JOURNAL_NAME)));   // converted on first write
+
+        store.append("cat @pet", "cat @pet @home");
+        assertEquals(new ArrayList<>(Arrays.asList("cat", "cat @pet")), store.names("cat"));
+        assertTrue(Files.exists(directory.resolve(NameHistoryStore.JOURNAL_NAME)));
+        assertFalse(Files.exists(directory.resolve(NameHistoryStore.LEGACY_NAME)));
+        assertEquals(new ArrayList<>(Arrays.asList("cat", "cat @pet")), new NameHistoryStore(directory).names("cat"));
+    }
+
+    @Test
+    public void testOpenWritesNothing() throws Exception {
+        Path journal = directory.resolve(NameHistoryStore.JOURNAL_NAME);
+        Files.write(journal, (NameHistoryStore.HEADER + "\n"
+                + new NameHistoryStore.Record("cat", 1, "cat", "cat @pet").format() + "dog\t2").getBytes("UTF-8"));
+        long size = Files.size(journal);
+
+        NameHistoryStore store = new NameHistoryStore(directory);
+        assertEquals(new ArrayList<>(Arrays.asList("cat")), store.names("cat"));
+        assertEquals(size, Files.size(journal));
+        assertFalse(Files.exists(directory.resolve(NameHistoryStore.INDEX_NAME)));
+
+        // The first write ends the cut short line and writes the index
+        store.append("cat @pet", "cat");
+        assertEquals(new ArrayList<>(Arrays.asList("cat", "cat @pet")), new NameHistoryStore(directory).names("cat"));
+        assertTrue(Files.exists(directory.resolve(NameHistoryStore.INDEX_NAME)));
+    }
+
+    @Test
+    public void testCompact() throws Exception {
+        NameHistoryStore store = new NameHistoryStore(directory);
+        store.append("cat", "cat @pet");
+        store.append("cat @pet", "cat @pet @cute");
+        store.append("cat @pet @cute", "cat @cute");
+        store.append("dog", "dog @pet");
+
+        store.compact(new HashSet<>(Arrays.asList("cat")), new HistoryRetention(2, 1, 0));
+        assertEquals(new ArrayList<>(Arrays.asList("cat @pet", "cat @pet @cute")), store.names("cat"));
+        assertEquals(new ArrayList<>(), store.names("dog"));
+        assertEquals(new ArrayList<>(Arrays.asList("cat @pet", "cat @pet @cute")),
+                new NameHistoryStore(directory).names("cat"));
+
+        store.compact(new HashSet<>(Arrays.asList("cat")), new HistoryRetention(2, 1, 0));
+        int archives = 0;
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory,
+                NameHistoryStore.ARCHIVE_PREFIX + "*" + NameHistoryStore.ARCHIVE_SUFFIX)) {
+            for (Path ignored : stream) archives++;
+        }
+        assertEquals(1, archives);
+    }
+}
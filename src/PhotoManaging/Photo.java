@@ -1,9 +1,11 @@
 package PhotoManaging;
 
-import java.io.File;
+import java.awt.Dimension;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.nio.file.*;
+import java.util.regex.Pattern;
 
 /**
  * A Photo with given filepath and name.
@@ -16,6 +18,10 @@ import java.nio.file.*;
  */
 public class Photo {
 
+    /* Tags containing a character not allowed in file names, and tags ending in " " or "." */
+    private static final Pattern ILLEGAL_TAG = Pattern.compile(".*[<>:\"/|?*\\\\].*");
+    private static final Pattern ILLEGAL_TAG_ENDING = Pattern.compile(".*[\\s.]");
+
     /* The full name of this Photo, INCLUDING all tags */
     private String name;
 
@@ -28,12 +34,21 @@ public class Photo {
     /* The list of tags associated with this Photo */
     private ArrayList<String> tags = new ArrayList<>();
 
-    /* The list of all previous names of this Photo */
-    private ArrayList<String> nameHistory = new ArrayList<>();
+    /* The list of all previous names of this Photo, read from history the first time it is needed */
+    private ArrayList<String> nameHistory;
+
+    /* The name history of the directory this Photo was found in, or null if it could not be opened */
+    private NameHistoryStore history;
 
     /* A LoggerHandler object to handle all services where writing name history to a log file is needed. */
     private LoggerHandler LH;
 
+    /* Records each rename of the file before it is made, or null if this Photo's renames are not journaled */
+    private volatile IntentJournal journal;
+
+    /* The width and height of the image file, read from its header the first time they are needed */
+    private volatile Dimension dimensions;
+
     /**
      * Initialize a new Photo.
      * <p>
@@ -47,15 +62,13 @@ public class Photo {
         this.path = path;
         this.name = name;
         this.setIsFavourite(false);
-        // This call to readNameHistory builds nameHistory from an existing NameHistory.txt file
-        // and also adds the current name to the end of nameHistory
+        history = NameHistoryStore.forDirectoryOrNull(path.getParent());
         try {
-            ReadFileHandler.readNameHistory(path, this);
             updateFileName();
         } catch (Exception e) {
             e.printStackTrace();
         }
-        LH = new LoggerHandler(path, "NameHistory.txt", true);
+        LH = new LoggerHandler();
     }
 
     static String baseName(String originalName) {
@@ -90,6 +103,16 @@ public class Photo {
         return new ArrayList<>(this.tags);
     }
 
+    /**
+     * Returns true if this Photo carries the given tag, without copying the list of tags
+     *
+     * @param tag the tag to look for
+     * @return whether tag is attached to this Photo
+     */
+    boolean hasTag(String tag) {
+        return this.tags.contains(tag);
+    }
+
     /**
      * returns this photos path
      *
@@ -99,6 +122,22 @@ public class Photo {
         return path;
     }
 
+    /**
+     * Returns the width and height of the image file of this Photo, reading only its header the first time.
+     * Renaming or moving the file does not change its contents, so the result is kept for the life of this Photo.
+     *
+     * @return the dimensions of the image, in pixels
+     * @throws IOException if the image file cannot be read or is not in a supported format
+     */
+    public Dimension getDimensions() throws IOException {
+        Dimension probed = dimensions;
+        if (probed == null) {
+            probed = ImageProbe.dimensions(path);
+            dimensions = probed;
+        }
+        return new Dimension(probed);
+    }
+
     /**
      * Changes the path of the Photo
      *
@@ -108,6 +147,29 @@ public class Photo {
         this.path = path;
     }
 
+    /**
+     * Journals every rename of this Photo's file from now on in journal.
+     *
+     * @param journal the IntentJournal of the PhotoManager holding this Photo
+     */
+    void setJournal(IntentJournal journal) {
+        this.journal = journal;
+    }
+
+    /**
+     * @return the IntentJournal this Photo's renames are journaled in, or null if they are not
+     */
+    IntentJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Forgets what was read from the image file, after the file was changed outside the program.
+     */
+    void fileChanged() {
+        dimensions = null;
+    }
+
     /**
      * Returns true if this is a valid tag to add to a Photo with tags existingTags,
      * otherwise returns false.
@@ -118,9 +180,9 @@ public class Photo {
      */
     static boolean validateTag(String tag, ArrayList<String> existingTags) {
         return !(existingTags.contains(tag)) &&
-                !tag.matches(".*[<>:\"/|?*\\\\].*") &&      // Tag contains illegal char
-                !tag.matches(".*[\\s.]") &&                 // Tag ends in " " or "."
-                !tag.matches("^$");                         // Tag is empty string
+                !ILLEGAL_TAG.matcher(tag).matches() &&          // Tag contains illegal char
+                !ILLEGAL_TAG_ENDING.matcher(tag).matches() &&   // Tag ends in " " or "."
+                !tag.isEmpty();                                 // Tag is empty string
     }
 
     /**
@@ -143,11 +205,9 @@ public class Photo {
      */
     public void addTag(String tag) throws Exception {
         if (validateTag(tag, getTags())) {
-            tags.add(tag);
-            this.name = updateName(name, getTags());
-            updateFileName();
-            // Only logs a change if the Photo is renamed to something different
-            if (!(name.equals(nameHistory.get(nameHistory.size() - 1)))) LH.logPhoto(this);
+            ArrayList<String> newTags = getTags();
+            newTags.add(tag);
+            rename(updateName(name, newTags), newTags);
         }
     }
 
@@ -158,10 +218,25 @@ public class Photo {
      * @param tag the tag to remove to the Photo's name
      */
     void removeTag(String tag) throws Exception {
-        this.tags.remove(tag);
-        this.name = updateName(name, getTags());
-        updateFileName();
-        LH.logPhoto(this);
+        ArrayList<String> newTags = getTags();
+        newTags.remove(tag);
+        rename(updateName(name, newTags), newTags);
+    }
+
+    /**
+     * Returns the tags this Photo would have after removing the tags in remove and adding each valid tag in add.
+     *
+     * @param add    the tags to add to the Photo's name
+     * @param remove the tags to remove from the Photo's name
+     * @return the new tags, or null if they are the same as this Photo's
+     */
+    ArrayList<String> tagsAfter(Collection<String> add, Collection<String> remove) {
+        ArrayList<String> newTags = new ArrayList<>(tags);
+        newTags.removeIf(tag -> remove.contains(tag) && !add.contains(tag));
+        for (String tag : add) {
+            if (validateTag(tag, newTags)) newTags.add(tag);
+        }
+        return newTags.equals(tags) ? null : newTags;
     }
 
     /**
@@ -171,51 +246,135 @@ public class Photo {
      * @param index the index of the nameHistory to restore to
      */
     void restoreName(int index) throws Exception {
-        this.name = nameHistory.get(index);
-        String[] sections = this.name.split("@");
-        this.tags.clear();
+        String restored = getNameHistory().get(index);
+        String[] sections = restored.split("@");
+        ArrayList<String> newTags = new ArrayList<>();
         for (int x = 1; x < sections.length; x++) {
-            this.tags.add(sections[x].trim());
+            newTags.add(sections[x].trim());
         }
+        rename(updateName(restored, newTags), newTags);
+    }
 
-        this.name = updateName(name, getTags());
-        updateFileName();
-        LH.logPhoto(this);
+    /**
+     * Renames this Photo to newName with the tags newTags. If the file cannot be renamed the Photo is left as it was.
+     *
+     * @param newName the new name of this Photo
+     * @param newTags the tags carried in newName
+     */
+    private void rename(String newName, ArrayList<String> newTags) throws Exception {
+        renamed(newName, newTags, renameFile(newName));
     }
 
     /**
+     * Renames this Photo's file to the one for newName and logs the new name, leaving the Photo itself as it is until
+     * renamed is called, so the file can be renamed without the lock of its PhotoManager. The rename is journaled
+     * first and made before anything else changes, so if the file cannot be renamed nothing changes. Logging the
+     * new name is only attempted, and the intent is committed either way.
+     *
+     * @param newName the new name of this Photo
+     * @return the new path of the file
+     */
+    Path renameFile(String newName) throws Exception {
+        String oldName = name;
+        Path oldPath = path;
+        Path newPath = pathNamed(newName);
+        IntentJournal journal = this.journal;
+        long intent = 0;
+        if (journal != null && !newPath.equals(oldPath)) intent = journal.begin(oldPath, newPath, oldName, newName);
+        try {
+            if (!newPath.equals(oldPath)) FileMover.move(oldPath, newPath);
+        } catch (IOException e) {
+            if (intent != 0) journal.abort(intent);
+            throw new IOException("Error writing to filepath.", e);
+        }
+        // Only logs a change if the Photo is renamed to something different. The file is already renamed, so a
+        // history that cannot be written is reported and the rename still goes ahead
+        if (!(newName.equals(oldName))) {
+            try {
+                LH.logPhoto(newPath, oldName, newName);
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        }
+        if (intent != 0) {
+            try {
+                journal.commit(intent);
+            } catch (IOException e) {
+                e.printStackTrace();    // the intent is rolled forward, as it was carried out, when next recovered
+            }
+        }
+        return newPath;
+    }
+
+    /**
+     * Gives this Photo the name and tags its file was renamed for by renameFile.
+     *
+     * @param newName the new name of this Photo
+     * @param newTags the tags carried in newName
+     * @param newPath the path renameFile returned
+     */
+    void renamed(String newName, ArrayList<String> newTags, Path newPath) {
+        this.path = newPath;
+        this.tags = newTags;
+        this.name = newName;
+        if (nameHistory != null && !nameHistory.contains(name)) nameHistory.add(name);
+    }
+
+    /**
+     * Returns every name this Photo has had, ending with its current name.
+     * The names are read from the name history of its directory the first time they are needed.
+     *
      * @return this Photo's nameHistory
      */
     public ArrayList<String> getNameHistory() {
+        if (nameHistory == null) {
+            nameHistory = new ArrayList<>();
+            if (history != null) {
+                try {
+                    nameHistory.addAll(history.names(baseName(name)));
+                } catch (IOException e) {
+                    e.printStackTrace();
+                }
+            }
+            if (!nameHistory.contains(name)) nameHistory.add(name);
+        }
         return nameHistory;
     }
 
     /**
-     * Changes the system name of the Photo file.
-     * Adapted from https://www.tutorialspoint.com/javaexamples/file_rename.htm
-     * and https://stackoverflow.com/questions/14526260/how-do-i-get-the-file-name-from-a-
-     * string-containing-the-absolute-file-path on 11/16/17
+     * Changes the system name of the Photo file to match its name.
      */
     private void updateFileName() throws IOException {
-        File oldName = path.toFile();
+        moveFile(pathNamed(name));
+    }
 
-        // getting the new path name
+    /**
+     * Returns the path of this Photo's file if it were named newName, in the same directory and with the same file
+     * type.
+     *
+     * @param newName the name of the Photo
+     * @return the path of its file
+     */
+    Path pathNamed(String newName) {
         // grabs the file type including '.'
-        String ext = path.toString().substring(path.toString().lastIndexOf("."));
-        String newFileName = "/" + name + ext;
-
-        String newPathName;
-        if (path.toString().contains("/")) {
-            newPathName = path.toString().substring(0, path.toString().lastIndexOf("/")) + newFileName;
-        } else {
-            newPathName = path.toString().substring(0, path.toString().lastIndexOf("\\")) + newFileName;
-        }
+        String fileName = path.getFileName().toString();
+        return path.resolveSibling(newName + fileName.substring(fileName.lastIndexOf(".")));
+    }
 
-        path = Paths.get(newPathName);
-        File newName = new File(newPathName);
+    /**
+     * Renames the Photo file to newPath, changing path only once the file has been renamed.
+     *
+     * @param newPath the new path of the file
+     */
+    private void moveFile(Path newPath) throws IOException {
+        if (newPath.equals(path)) return;   // already named, as when the Photo is first loaded
 
-        boolean success = oldName.renameTo(newName);
-        if (!success) throw new IOException("Error writing to filepath.");
+        try {
+            FileMover.move(path, newPath);
+        } catch (IOException e) {
+            throw new IOException("Error writing to filepath.", e);
+        }
+        path = newPath;
     }
 
     /**
@@ -0,0 +1,390 @@
+package PhotoManaging;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * A PhotoBitmap which holds a set of Photo ordinals in compressed form.
+ * <p>
+ * Ordinals are split into chunks of 65536 by their high 16 bits. A chunk holding few ordinals keeps them as a sorted
+ * array of their low 16 bits; a chunk holding many keeps a plain bitmap. Set operations work chunk by chunk, so a
+ * tag used by a handful of Photos in a library of 500k costs a few bytes rather than 62kB.
+ * <p>
+ * The split into array and bitmap containers is adapted from "Better bitmap performance with Roaring bitmaps"
+ * (Chambi, Lemire, Kaser, Godin):
+ * https://arxiv.org/abs/1402.6407 (17/10/26)
+ */
+class PhotoBitmap {
+
+    /* The most ordinals a chunk keeps as a sorted array before switching to a bitmap */
+    private static final int ARRAY_LIMIT = 4096;
+
+    /* The high 16 bits of each chunk, ascending */
+    private int[] keys = new int[4];
+
+    /* The chunk for each entry in keys */
+    private Chunk[] chunks = new Chunk[4];
+
+    /* The number of chunks in use */
+    private int size;
+
+    /* The number of ordinals in this PhotoBitmap */
+    private int cardinality;
+
+    /**
+     * Adds ordinal to this PhotoBitmap.
+     *
+     * @param ordinal the non-negative ordinal to add
+     * @return true if ordinal was not already present
+     */
+    boolean add(int ordinal) {
+        int i = indexOf(ordinal >>> 16);
+        if (i < 0) {
+            i = -i - 1;
+            insertChunk(i, ordinal >>> 16, new Chunk());
+        }
+        boolean added = chunks[i].add((char) ordinal);
+        if (added) cardinality++;
+        return added;
+    }
+
+    /**
+     * Removes ordinal from this PhotoBitmap.
+     *
+     * @param ordinal the ordinal to remove
+     * @return true if ordinal was present
+     */
+    boolean remove(int ordinal) {
+        int i = indexOf(ordinal >>> 16);
+        if (i < 0 || !chunks[i].remove((char) ordinal)) return false;
+        cardinality--;
+        if (chunks[i].cardinality == 0) removeChunk(i);
+        return true;
+    }
+
+    /**
+     * Returns true if ordinal is in this PhotoBitmap.
+     *
+     * @param ordinal the ordinal to look for
+     * @return whether ordinal is present
+     */
+    boolean contains(int ordinal) {
+        int i = indexOf(ordinal >>> 16);
+        return i >= 0 && chunks[i].contains((char) ordinal);
+    }
+
+    /**
+     * @return the number of ordinals in this PhotoBitmap
+     */
+    int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @return true if this PhotoBitmap holds no ordinals
+     */
+    boolean isEmpty() {
+        return cardinality == 0;
+    }
+
+    /**
+     * Passes every ordinal in this PhotoBitmap to action, in ascending order.
+     *
+     * @param action the action to perform on each ordinal
+     */
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < size; i++) {
+            chunks[i].forEach(keys[i] << 16, action);
+        }
+    }
+
+    /**
+     * Returns the ordinals found in both this PhotoBitmap and other.
+     *
+     * @param other the PhotoBitmap to intersect with
+     * @return a new PhotoBitmap holding the intersection
+     */
+    PhotoBitmap and(PhotoBitmap other) {
+        PhotoBitmap result = new PhotoBitmap();
+        int i = 0, j = 0;
+        while (i < size && j < other.size) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendChunk(keys[i], Chunk.and(chunks[i], other.chunks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ordinals found in either this PhotoBitmap or other.
+     *
+     * @param other the PhotoBitmap to unite with
+     * @return a new PhotoBitmap holding the union
+     */
+    PhotoBitmap or(PhotoBitmap other) {
+        PhotoBitmap result = new PhotoBitmap();
+        int i = 0, j = 0;
+        while (i < size || j < other.size) {
+            if (j == other.size || (i < size && keys[i] < other.keys[j])) {
+                result.appendChunk(keys[i], chunks[i].copy());
+                i++;
+            } else if (i == size || keys[i] > other.keys[j]) {
+                result.appendChunk(other.keys[j], other.chunks[j].copy());
+                j++;
+            } else {
+                result.appendChunk(keys[i], Chunk.or(chunks[i], other.chunks[j]));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the ordinals found in this PhotoBitmap but not in other.
+     *
+     * @param other the PhotoBitmap to subtract
+     * @return a new PhotoBitmap holding the difference
+     */
+    PhotoBitmap andNot(PhotoBitmap other) {
+        PhotoBitmap result = new PhotoBitmap();
+        int j = 0;
+        for (int i = 0; i < size; i++) {
+            while (j < other.size && other.keys[j] < keys[i]) j++;
+            if (j < other.size && other.keys[j] == keys[i]) {
+                result.appendChunk(keys[i], Chunk.andNot(chunks[i], other.chunks[j]));
+            } else {
+                result.appendChunk(keys[i], chunks[i].copy());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the position of the chunk with the given key, or (-(insertion point) - 1) if there is none.
+     */
+    private int indexOf(int key) {
+        return Arrays.binarySearch(keys, 0, size, key);
+    }
+
+    /**
+     * Inserts chunk with the given key at position i.
+     */
+    private void insertChunk(int i, int key, Chunk chunk) {
+        if (size == keys.length) {
+            keys = Arrays.copyOf(keys, size * 2);
+            chunks = Arrays.copyOf(chunks, size * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, size - i);
+        System.arraycopy(chunks, i, chunks, i + 1, size - i);
+        keys[i] = key;
+        chunks[i] = chunk;
+        size++;
+    }
+
+    /**
+     * Removes the chunk at position i.
+     */
+    private void removeChunk(int i) {
+        System.arraycopy(keys, i + 1, keys, i, size - i - 1);
+        System.arraycopy(chunks, i + 1, chunks, i, size - i - 1);
+        chunks[--size] = null;
+    }
+
+    /**
+     * Adds chunk after every existing chunk, skipping it if it is empty.
+     * Precondition: key is greater than every existing key.
+     */
+    private void appendChunk(int key, Chunk chunk) {
+        if (chunk.cardinality > 0) {
+            insertChunk(size, key, chunk);
+            cardinality += chunk.cardinality;
+        }
+    }
+
+    /**
+     * The ordinals of a PhotoBitmap sharing the same high 16 bits, stored either as a sorted array of their low
+     * 16 bits or as a 65536-bit bitmap.
+     */
+    private static class Chunk {
+
+        /* The sorted low bits, or null if this Chunk is a bitmap */
+        private char[] values = new char[4];
+
+        /* The bitmap of low bits, or null if this Chunk is an array */
+        private long[] bits;
+
+        /* The number of ordinals in this Chunk */
+        private int cardinality;
+
+        boolean contains(char low) {
+            if (bits != null) return (bits[low >>> 6] & (1L << low)) != 0;
+            return Arrays.binarySearch(values, 0, cardinality, low) >= 0;
+        }
+
+        boolean add(char low) {
+            if (bits != null) {
+                long before = bits[low >>> 6];
+                bits[low >>> 6] |= 1L << low;
+                if (before == bits[low >>> 6]) return false;
+                cardinality++;
+                return true;
+            }
+            int i = Arrays.binarySearch(values, 0, cardinality, low);
+            if (i >= 0) return false;
+            if (cardinality == ARRAY_LIMIT) {
+                toBitmap();
+                return add(low);
+            }
+            i = -i - 1;
+            if (cardinality == values.length) values = Arrays.copyOf(values, Math.min(cardinality * 2, ARRAY_LIMIT));
+            System.arraycopy(values, i, values, i + 1, cardinality - i);
+            values[i] = low;
+            cardinality++;
+            return true;
+        }
+
+        boolean remove(char low) {
+            if (bits != null) {
+                long before = bits[low >>> 6];
+                bits[low >>> 6] &= ~(1L << low);
+                if (before == bits[low >>> 6]) return false;
+                // Only switches back well below the limit so alternating adds and removes do not convert each time
+                if (--cardinality <= ARRAY_LIMIT / 2) toArray();
+                return true;
+            }
+            int i = Arrays.binarySearch(values, 0, cardinality, low);
+            if (i < 0) return false;
+            System.arraycopy(values, i + 1, values, i, cardinality - i - 1);
+            cardinality--;
+            return true;
+        }
+
+        void forEach(int high, IntConsumer action) {
+            if (bits == null) {
+                for (int i = 0; i < cardinality; i++) action.accept(high | values[i]);
+                return;
+            }
+            for (int w = 0; w < bits.length; w++) {
+                long word = bits[w];
+                while (word != 0) {
+                    action.accept(high | (w << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+        }
+
+        Chunk copy() {
+            Chunk copy = new Chunk();
+            copy.values = values == null ? null : Arrays.copyOf(values, Math.max(cardinality, 1));
+            copy.bits = bits == null ? null : bits.clone();
+            copy.cardinality = cardinality;
+            return copy;
+        }
+
+        /**
+         * @return the low bits of this Chunk as a bitmap, sharing the array if this Chunk is already a bitmap
+         */
+        long[] bitmap() {
+            if (bits != null) return bits;
+            long[] words = new long[1024];
+            for (int i = 0; i < cardinality; i++) words[values[i] >>> 6] |= 1L << values[i];
+            return words;
+        }
+
+        private void toBitmap() {
+            bits = bitmap();
+            values = null;
+        }
+
+        private void toArray() {
+            char[] array = new char[Math.max(cardinality, 1)];
+            int[] n = {0};
+            forEach(0, ordinal -> array[n[0]++] = (char) ordinal);
+            values = array;
+            bits = null;
+        }
+
+        /**
+         * Builds a Chunk from the result of a bitmap operation, switching to an array if it is sparse.
+         */
+        private static Chunk fromBits(long[] words) {
+            Chunk chunk = new Chunk();
+            chunk.values = null;
+            chunk.bits = words;
+            for (long word : words) chunk.cardinality += Long.bitCount(word);
+            if (chunk.cardinality <= ARRAY_LIMIT) chunk.toArray();
+            return chunk;
+        }
+
+        /**
+         * Builds a Chunk from a sorted array of low bits, switching to a bitmap if it is dense.
+         */
+        private static Chunk fromArray(char[] array, int count) {
+            Chunk chunk = new Chunk();
+            chunk.values = array;
+            chunk.cardinality = count;
+            if (count > ARRAY_LIMIT) chunk.toBitmap();
+            return chunk;
+        }
+
+        static Chunk and(Chunk a, Chunk b) {
+            if (a.bits != null && b.bits != null) {
+                long[] words = new long[1024];
+                for (int w = 0; w < words.length; w++) words[w] = a.bits[w] & b.bits[w];
+                return fromBits(words);
+            }
+            if (a.bits != null) return and(b, a);
+            // a is an array, so the result is no larger than a
+            char[] array = new char[Math.max(a.cardinality, 1)];
+            int count = 0;
+            for (int i = 0; i < a.cardinality; i++) {
+                if (b.contains(a.values[i])) array[count++] = a.values[i];
+            }
+            return fromArray(array, count);
+        }
+
+        static Chunk or(Chunk a, Chunk b) {
+            if (a.bits == null && b.bits == null) {
+                char[] array = new char[a.cardinality + b.cardinality];
+                int i = 0, j = 0, count = 0;
+                while (i < a.cardinality || j < b.cardinality) {
+                    if (j == b.cardinality || (i < a.cardinality && a.values[i] < b.values[j])) {
+                        array[count++] = a.values[i++];
+                    } else if (i == a.cardinality || a.values[i] > b.values[j]) {
+                        array[count++] = b.values[j++];
+                    } else {
+                        array[count++] = a.values[i++];
+                        j++;
+                    }
+                }
+                return fromArray(array, count);
+            }
+            long[] words = a.bitmap().clone();
+            long[] other = b.bitmap();
+            for (int w = 0; w < words.length; w++) words[w] |= other[w];
+            return fromBits(words);
+        }
+
+        static Chunk andNot(Chunk a, Chunk b) {
+            if (a.bits == null) {
+                char[] array = new char[Math.max(a.cardinality, 1)];
+                int count = 0;
+                for (int i = 0; i < a.cardinality; i++) {
+                    if (!b.contains(a.values[i])) array[count++] = a.values[i];
+                }
+                return fromArray(array, count);
+            }
+            long[] words = a.bits.clone();
+            long[] other = b.bitmap();
+            for (int w = 0; w < words.length; w++) words[w] &= ~other[w];
+            return fromBits(words);
+        }
+    }
+}
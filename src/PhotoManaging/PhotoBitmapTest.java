@@ -0,0 +1,85 @@
+package PhotoManaging;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.TreeSet;
+
+public class PhotoBitmapTest extends TestCase {
+
+    private static PhotoBitmap bitmapOf(int... ordinals) {
+        PhotoBitmap bitmap = new PhotoBitmap();
+        for (int ordinal : ordinals) bitmap.add(ordinal);
+        return bitmap;
+    }
+
+    private static ArrayList<Integer> toList(PhotoBitmap bitmap) {
+        ArrayList<Integer> ordinals = new ArrayList<>();
+        bitmap.forEach(ordinals::add);
+        return ordinals;
+    }
+
+    // Testing of PhotoBitmap.add, remove and contains
+
+    @Test
+    public void testAddRemove() {
+        PhotoBitmap bitmap = bitmapOf(3, 70000, 1);
+        assertTrue(bitmap.contains(70000));
+        assertFalse(bitmap.add(3));
+        assertTrue(bitmap.remove(3));
+        assertFalse(bitmap.contains(3));
+        assertEquals(2, bitmap.cardinality());
+        assertEquals("[1, 70000]", toList(bitmap).toString());
+    }
+
+    @Test
+    public void testDenseChunk() {
+        PhotoBitmap bitmap = new PhotoBitmap();
+        for (int i = 0; i < 10000; i++) bitmap.add(i * 2);
+        assertEquals(10000, bitmap.cardinality());
+        assertTrue(bitmap.contains(19998));
+        assertFalse(bitmap.contains(19999));
+        for (int i = 0; i < 9000; i++) bitmap.remove(i * 2);
+        assertEquals(1000, bitmap.cardinality());
+        assertEquals(18000, (int) toList(bitmap).get(0));
+    }
+
+    // Testing of PhotoBitmap.and, or and andNot against TreeSet
+
+    @Test
+    public void testSetOperations() {
+        Random random = new Random(42);
+        PhotoBitmap a = new PhotoBitmap();
+        PhotoBitmap b = new PhotoBitmap();
+        TreeSet<Integer> setA = new TreeSet<>();
+        TreeSet<Integer> setB = new TreeSet<>();
+        // The first chunk is dense in both, the second sparse in both and the third dense in only one
+        for (int i = 0; i < 20000; i++) {
+            int ordinal = random.nextInt(200000);
+            if (ordinal >= 65536 && ordinal < 131072 && random.nextInt(10) != 0) continue;
+            setA.add(ordinal);
+            a.add(ordinal);
+            if (ordinal < 131072 || random.nextInt(10) == 0) {
+                int other = ordinal ^ random.nextInt(4);
+                setB.add(other);
+                b.add(other);
+            }
+        }
+
+        TreeSet<Integer> expected = new TreeSet<>(setA);
+        expected.retainAll(setB);
+        assertEquals(new ArrayList<>(expected), toList(a.and(b)));
+
+        expected = new TreeSet<>(setA);
+        expected.addAll(setB);
+        assertEquals(new ArrayList<>(expected), toList(a.or(b)));
+        assertEquals(expected.size(), a.or(b).cardinality());
+
+        expected = new TreeSet<>(setA);
+        expected.removeAll(setB);
+        assertEquals(new ArrayList<>(expected), toList(a.andNot(b)));
+        assertEquals(expected.size(), a.andNot(b).cardinality());
+    }
+}
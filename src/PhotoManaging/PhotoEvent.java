@@ -0,0 +1,278 @@
+package PhotoManaging;
+
+import java.nio.file.Path;
+
+/**
+ * A PhotoEvent which describes one change made to a PhotoManager, published through its EventBus.
+ * <p>
+ * Each kind of change is a subclass, so a subscriber can ask for only the kinds it cares about.
+ */
+public abstract class PhotoEvent {
+
+    /* The Photo that changed, or null if the change is only to the master list of tags */
+    private final Photo photo;
+
+    /**
+     * Initialize a new PhotoEvent.
+     *
+     * @param photo see above instance parameter
+     */
+    PhotoEvent(Photo photo) {
+        this.photo = photo;
+    }
+
+    /**
+     * @return the Photo that changed, or null if the change is only to the master list of tags
+     */
+    public Photo getPhoto() {
+        return photo;
+    }
+
+    /**
+     * Returns the key under which this event is merged with a later event of the same class in the same batch,
+     * or null if it is never merged.
+     *
+     * @return the coalescing key of this event
+     */
+    Object coalesceKey() {
+        return null;
+    }
+
+    /**
+     * Returns the single event with the combined effect of this event followed by later, which has the same
+     * coalesceKey.
+     *
+     * @param later the event that followed this one
+     * @return the merged event
+     */
+    PhotoEvent merge(PhotoEvent later) {
+        return later;
+    }
+
+    /**
+     * A Photo was added to the PhotoManager.
+     */
+    public static final class PhotoAdded extends PhotoEvent {
+        PhotoAdded(Photo photo) {
+            super(photo);
+        }
+    }
+
+    /**
+     * A Photo's file was deleted or renamed outside the program, so the Photo is no longer part of the PhotoManager.
+     */
+    public static final class PhotoRemoved extends PhotoEvent {
+        PhotoRemoved(Photo photo) {
+            super(photo);
+        }
+
+        @Override
+        Object coalesceKey() {
+            return getPhoto();
+        }
+    }
+
+    /**
+     * A Photo's file was changed outside the program, such as by an image editor.
+     */
+    public static final class PhotoModified extends PhotoEvent {
+        PhotoModified(Photo photo) {
+            super(photo);
+        }
+
+        @Override
+        Object coalesceKey() {
+            return getPhoto();
+        }
+    }
+
+    /**
+     * A Photo's name changed, because tags were added or removed or an old name was restored.
+     */
+    public static final class PhotoRenamed extends PhotoEvent {
+        /* The name before the change */
+        private final String oldName;
+        /* The name after the change */
+        private final String newName;
+
+        PhotoRenamed(Photo photo, String oldName, String newName) {
+            super(photo);
+            this.oldName = oldName;
+            this.newName = newName;
+        }
+
+        /**
+         * @return the name before the change
+         */
+        public String getOldName() {
+            return oldName;
+        }
+
+        /**
+         * @return the name after the change
+         */
+        public String getNewName() {
+            return newName;
+        }
+
+        @Override
+        Object coalesceKey() {
+            return getPhoto();
+        }
+
+        @Override
+        PhotoEvent merge(PhotoEvent later) {
+            return new PhotoRenamed(getPhoto(), oldName, ((PhotoRenamed) later).newName);
+        }
+    }
+
+    /**
+     * A tag was added to a Photo, or to the master list of tags if getPhoto returns null.
+     */
+    public static final class TagAdded extends PhotoEvent {
+        /* The tag added */
+        private final String tag;
+
+        TagAdded(String tag, Photo photo) {
+            super(photo);
+            this.tag = tag;
+        }
+
+        /**
+         * @return the tag added
+         */
+        public String getTag() {
+            return tag;
+        }
+
+        @Override
+        Object coalesceKey() {
+            return new TagKey(tag, getPhoto());
+        }
+    }
+
+    /**
+     * A tag was removed from a Photo, or from the master list of tags if getPhoto returns null.
+     */
+    public static final class TagRemoved extends PhotoEvent {
+        /* The tag removed */
+        private final String tag;
+
+        TagRemoved(String tag, Photo photo) {
+            super(photo);
+            this.tag = tag;
+        }
+
+        /**
+         * @return the tag removed
+         */
+        public String getTag() {
+            return tag;
+        }
+
+        @Override
+        Object coalesceKey() {
+            return new TagKey(tag, getPhoto());
+        }
+    }
+
+    /**
+     * A Photo was favourited or unfavourited.
+     */
+    public static final class FavouriteChanged extends PhotoEvent {
+        /* Whether the Photo is now a favourite */
+        private final boolean favourite;
+
+        FavouriteChanged(Photo photo, boolean favourite) {
+            super(photo);
+            this.favourite = favourite;
+        }
+
+        /**
+         * @return true if the Photo is now a favourite
+         */
+        public boolean isFavourite() {
+            return favourite;
+        }
+
+        @Override
+        Object coalesceKey() {
+            return getPhoto();
+        }
+    }
+
+    /**
+     * A Photo's file was moved to another directory. If the directory is outside the root of the PhotoManager, the
+     * Photo is no longer part of it.
+     */
+    public static final class PhotoMoved extends PhotoEvent {
+        /* The path before the move */
+        private final Path oldPath;
+        /* The path after the move */
+        private final Path newPath;
+        /* True if the Photo left the PhotoManager */
+        private final boolean removed;
+
+        PhotoMoved(Photo photo, Path oldPath, Path newPath, boolean removed) {
+            super(photo);
+            this.oldPath = oldPath;
+            this.newPath = newPath;
+            this.removed = removed;
+        }
+
+        /**
+         * @return the path before the move
+         */
+        public Path getOldPath() {
+            return oldPath;
+        }
+
+        /**
+         * @return the path after the move
+         */
+        public Path getNewPath() {
+            return newPath;
+        }
+
+        /**
+         * @return true if the Photo was moved outside the root and is no longer part of the PhotoManager
+         */
+        public boolean isRemoved() {
+            return removed;
+        }
+
+        @Override
+        Object coalesceKey() {
+            return getPhoto();
+        }
+
+        @Override
+        PhotoEvent merge(PhotoEvent later) {
+            PhotoMoved next = (PhotoMoved) later;
+            return new PhotoMoved(getPhoto(), oldPath, next.newPath, next.removed);
+        }
+    }
+
+    /**
+     * Identifies a tag on a Photo, or on the master list of tags, for coalescing.
+     */
+    private static final class TagKey {
+        private final String tag;
+        private final Photo photo;
+
+        TagKey(String tag, Photo photo) {
+            this.tag = tag;
+            this.photo = photo;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof TagKey && ((TagKey) other).tag.equals(tag) && ((TagKey) other).photo == photo;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * tag.hashCode() + System.identityHashCode(photo);
+        }
+    }
+}
@@ -1,7 +1,24 @@
 package PhotoManaging;
 
 import java.io.*;
+import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
 import java.nio.file.*;
 
 /**
@@ -10,27 +27,94 @@ import java.nio.file.*;
  */
 public class PhotoManager {
 
+    /* How many photo files are renamed at once by applyTagChanges, few enough that the disk is not swamped */
+    static final int RENAME_THREADS = 4;
+
+    /* How many Photos a BulkJob changes under each hold of the lock of its PhotoManager */
+    static final int BULK_CHUNK = 64;
+
+    /* The threads on which applyTagChanges renames photo files, shared by every PhotoManager */
+    private static final ExecutorService RENAMERS = Executors.newFixedThreadPool(RENAME_THREADS, r -> {
+        Thread thread = new Thread(r, "Photo renamer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /* How many photo files are moved at once by relocatePhotos, across every volume */
+    static final int MOVE_THREADS = 8;
+
+    /* How many photo files may be moved to or from one volume at once */
+    static final int MOVES_PER_VOLUME = 2;
+
+    /* The threads on which relocatePhotos moves photo files, shared by every PhotoManager */
+    private static final ExecutorService MOVERS = Executors.newFixedThreadPool(MOVE_THREADS, r -> {
+        Thread thread = new Thread(r, "Photo mover");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /* Limits how many photo files are moved to or from each volume at once, shared by every PhotoManager */
+    private static final VolumeLimiter VOLUMES = new VolumeLimiter(MOVES_PER_VOLUME);
+
     /* The path of this PhotoManager */
     private Path path;
 
     /* The collection of all Photos in this PhotoManager*/
     private ArrayList<Photo> photoMaster = new ArrayList<>();
 
-    /* The master list of tags associated with all Photos in this PhotoManager */
-    private ArrayList<String> tagMaster = new ArrayList<>();
+    /* The Photos of photoMaster in the order they are displayed in */
+    private final SortedPhotos sortedPhotos = new SortedPhotos(PhotoOrder.NAME);
+
+    /* The master list of tags associated with all Photos in this PhotoManager, in the order they were added */
+    private LinkedHashSet<String> tagMaster = new LinkedHashSet<>();
+
+    /* The Photos carrying each tag in tagMaster */
+    private TagIndex tagIndex = new TagIndex();
+
+    /* The list of all favourited photos in this PhotoManager, in the order they were favourited */
+    private LinkedHashSet<Photo> favPhotos = new LinkedHashSet<>();
+
+    /* Counts the Photos in this PhotoManager sharing each base name, used to keep names unique */
+    private final BaseNameIndex baseNames = new BaseNameIndex();
+
+    /* The list of names of all the favourited Photos in this PhotoManager, as read from FavList.txt */
+    private LinkedHashSet<String> favPhotoNames = new LinkedHashSet<>();
+
+    /* The names in favPhotoNames whose Photos have not been loaded yet, kept in FavList.txt until loading ends */
+    private final LinkedHashSet<String> unloadedFavNames = new LinkedHashSet<>();
+
+    /* The files of the Photos moved or renamed within the root while loading, which the loading must not add again */
+    private final HashSet<Path> movedWhileLoading = new HashSet<>();
+
+    /* The Photos being moved by relocatePhotos or renamed by applyTagChanges, while their files change unlocked */
+    private final Set<Photo> relocating = Collections.newSetFromMap(new IdentityHashMap<>());
+
+    /* The old and new files of the Photos in relocating, which loading and sync leave alone until the moves end */
+    private final HashSet<Path> relocatingFiles = new HashSet<>();
+
+    /* True while the photo files are being added */
+    private boolean loading;
+
+    /* True once every photo file has been added, without the loading being cancelled */
+    private boolean loaded;
+
+    /* Keeps this PhotoManager in step with changes made outside the program, or null if they are not watched */
+    private LibraryWatcher watcher;
 
-    /* The list of all favourited photos in this PhotoManager */
-    private ArrayList<Photo> favPhotos = new ArrayList<>();
+    /* A RegistryWriter object to keep TagsList.txt up to date with tagMaster. */
+    private RegistryWriter TH;
 
-    /* The list of names of all the favourited Photos in this PhotoManager */
-    private ArrayList<String> favPhotoNames = new ArrayList<>();
+    /* A RegistryWriter object to keep FavList.txt up to date with the names of the photos in favPhotos. */
+    private RegistryWriter FH;
 
-    /* A LoggerHandler object to handle all services where writing tags to a log file is needed. */
-    private LoggerHandler TH;
+    /* Records each rename and move of a photo file before it is made, so a crash part way can be recovered */
+    private final IntentJournal journal;
 
-    /* A LoggerHandler object to handle all services where writing the names of favourited photos to a log file
-    is needed. */
-    private LoggerHandler FH;
+    /* Delivers a PhotoEvent for each change made to this PhotoManager */
+    private final EventBus events = new EventBus();
+
+    /* How much name history is kept for the directories of this PhotoManager */
+    private volatile HistoryRetention historyRetention = HistoryRetention.DEFAULT;
 
     /**
      * Initialize a new PhotoManager.
@@ -43,12 +127,63 @@ public class PhotoManager {
      * @param path the Path for the given PhotoManager
      */
     public PhotoManager(Path path) throws Exception {
+        this(path, true);
+    }
+
+    /**
+     * Initialize a new PhotoManager, restoring its tags and favourites, and adding all photo files in the given
+     * directory now only if loadPhotos is true. Otherwise the Photos are added by startLoading.
+     *
+     * @param path       the Path for the given PhotoManager
+     * @param loadPhotos whether to add the photo files before returning
+     */
+    public PhotoManager(Path path, boolean loadPhotos) throws Exception {
         this.path = path;
-        TH = new LoggerHandler(path, "TagsList.txt", false);
-        FH = new LoggerHandler(path, "FavList.txt", false);
-        ReadFileHandler.readTextFile(path, true, this);  // Restores tagMaster to previous state before exit
-        ReadFileHandler.readTextFile(path, false, this); // Restores favPhotos to previous state before exit
-        initializePhotos(this.path, this.favPhotoNames);
+        TH = new RegistryWriter(path.resolve("TagsList.txt"), this, () -> tagMaster);
+        FH = new RegistryWriter(path.resolve("FavList.txt"), this, this::favouriteNames);
+        journal = new IntentJournal(path);
+        // A name history that could not be opened before is tried again now that its directory is opened again
+        NameHistoryStore.forgetFailures(path);
+        synchronized (this) {
+            ReadFileHandler.readTextFile(path, true, this);  // Restores tagMaster to previous state before exit
+            ReadFileHandler.readTextFile(path, false, this); // Restores favPhotos to previous state before exit
+            // Finishes any rename cut short when the program last ended, before the files are read
+            for (Map.Entry<String, String> renamed : journal.recover().entrySet()) {
+                if (favPhotoNames.remove(renamed.getKey())) {
+                    favPhotoNames.add(renamed.getValue());
+                    FH.markDirty();
+                }
+            }
+            unloadedFavNames.addAll(favPhotoNames);
+            loading = true;
+        }
+        if (loadPhotos) {
+            DirectoryLoad load = new DirectoryLoad();
+            initializePhotos(load);
+            load.finish(null);
+        }
+    }
+
+    /**
+     * Starts adding the photo files in the directory of this PhotoManager on a background thread, in batches, so the
+     * first Photos can be browsed while the rest are found. A PhotoAdded event is published for each.
+     *
+     * @return the DirectoryLoad following the loading, which can be cancelled
+     */
+    public DirectoryLoad startLoading() {
+        DirectoryLoad load = new DirectoryLoad();
+        Thread loader = new Thread(() -> {
+            try {
+                initializePhotos(load);
+                load.finish(null);
+            } catch (Exception e) {
+                e.printStackTrace();
+                load.finish(e);
+            }
+        }, "Photo loader");
+        loader.setDaemon(true);
+        loader.start();
+        return load;
     }
 
     /**
@@ -60,57 +195,100 @@ public class PhotoManager {
      * @return a possibly modified name that will be unique in this PhotoManager
      */
     static String uniqueName(String originalName, ArrayList<String> existingNames) {
-        String baseName;
-        String suffix = "";
-        if (!(originalName.contains("@"))) baseName = originalName;
-        else {
-            baseName = originalName.substring(0, originalName.indexOf('@') - 1);
-            suffix = originalName.substring(originalName.indexOf('@') - 1);
-        }
-        int duplicateCount = 0;
+        BaseNameIndex baseNames = new BaseNameIndex();
         for (String existingName : existingNames) {
-            if (Photo.baseName(existingName).matches(baseName + "(\\s\\([0-9]*\\))*")) duplicateCount++;
-        }
-        if (duplicateCount == 0) return originalName;
-        else {
-            return baseName + " (" + ++duplicateCount + ")" + suffix;
+            baseNames.add(existingName);
         }
+        return baseNames.uniqueName(originalName);
     }
 
     /**
-     * Recursively searches root directory located at dirPath for all valid Photos,
-     * and subsequently favorites them if they are found in favList.
+     * Searches the root directory and all of its subdirectories for all valid Photos,
+     * and subsequently favorites them if they are found in favPhotoNames.
+     * The subdirectories are walked concurrently by a DirectoryScanner, but Photos are added in the same
+     * order as a sequential walk so that unique names are assigned deterministically. Each batch is added under
+     * the lock of this PhotoManager, so it can be used between batches.
      *
-     * @param dirPath the root path to search for Photos
-     * @param favList the list of favorites to validate created Photos against
-     * @throws Exception if DirectoryStream cannot be created at dirPath
+     * @param load counts the Photos added, and stops the loading when cancelled
+     * @throws Exception if DirectoryStream cannot be created for a directory
      */
-    private void initializePhotos(Path dirPath, ArrayList favList) throws Exception {
-        String IMAGE_TYPES = ".*\\.(jpg|png|gif|bmp)";
-        DirectoryStream<Path> stream = Files.newDirectoryStream(dirPath);
-        for (Path entry : stream) {
-            if (entry.toString().matches(IMAGE_TYPES)) {
-                // removing the file type from the file name
-                String photoName = entry.getFileName().toString().substring(0,
-                        entry.getFileName().toString().lastIndexOf("."));
-                photoName = uniqueName(photoName, getPhotoMasterNames());
-                String[] sections = photoName.split("@");
-                Photo newPhoto = new Photo(entry, photoName);
-                // adding tags to the Photo from the file name
-                for (int x = 1; x < sections.length; x++) {
-                    newPhoto.addTagInit(sections[x].trim());
+    private void initializePhotos(DirectoryLoad load) throws Exception {
+        LibraryIndex previous = LibraryIndex.read(this.path);
+        DirectoryScanner scanner;
+        try {
+            scanner = new DirectoryScanner(this.path, load, previous);
+            for (List<Path> batch = scanner.next(); batch != null; batch = scanner.next()) {
+                synchronized (this) {
+                    for (Path entry : batch) {
+                        initializePhoto(entry);
+                    }
                 }
-                this.addPhoto(newPhoto);
-                // upon initialization if the photo is in the favPhotoName list it will change the status of isFavourite
-                if (favList.contains(newPhoto.toString())) {
-                    this.favPhoto(newPhoto);
+                load.photosLoaded(batch.size());
+            }
+        } finally {
+            synchronized (this) {
+                loading = false;
+                movedWhileLoading.clear();
+            }
+        }
+        if (!load.isCancelled()) {
+            // Favourites not found are gone, so they are no longer kept in FavList.txt
+            synchronized (this) {
+                unloadedFavNames.clear();
+                loaded = true;
+                if (watcher != null) watcher.start();
+            }
+            // Remember the listing of every directory, so the next load only lists those that change
+            if (scanner.index().differsFrom(previous)) {
+                try {
+                    scanner.index().write();
+                } catch (IOException e) {
+                    e.printStackTrace();    // every directory is listed again next time
                 }
-            } else if (entry.toFile().isDirectory()) {
-                initializePhotos(entry, favList);
             }
+            HistoryCompactor.schedule(this);
+        }
+    }
+
+    /**
+     * Adds the Photo of the photo file at entry, favouriting it if it is in favPhotoNames.
+     *
+     * @param entry the photo file
+     */
+    private void initializePhoto(Path entry) throws Exception {
+        if (movedWhileLoading.remove(entry)) return;     // already added before it was moved here
+        if (relocatingFiles.contains(entry)) return;     // already added, and being moved here
+        // removing the file type from the file name
+        String photoName = entry.getFileName().toString().substring(0,
+                entry.getFileName().toString().lastIndexOf("."));
+        photoName = baseNames.uniqueName(photoName);
+        String[] sections = photoName.split("@");
+        Photo newPhoto = new Photo(entry, photoName);
+        // adding tags to the Photo from the file name
+        for (int x = 1; x < sections.length; x++) {
+            newPhoto.addTagInit(sections[x].trim());
+        }
+        this.addPhoto(newPhoto);
+        // upon initialization if the photo is in the favPhotoName list it will change the status of isFavourite
+        if (favPhotoNames.contains(newPhoto.toString())) {
+            unloadedFavNames.remove(newPhoto.toString());
+            this.favPhoto(newPhoto);
         }
     }
 
+    /**
+     * Returns the lines of FavList.txt: the names of the favourited Photos, followed by the favourites read from
+     * FavList.txt whose Photos have not been loaded yet, so they are not forgotten if loading is cancelled.
+     *
+     * @return the names of the favourites of this PhotoManager
+     */
+    private Iterable<?> favouriteNames() {
+        if (unloadedFavNames.isEmpty()) return favPhotos;
+        ArrayList<Object> names = new ArrayList<>(favPhotos);
+        names.addAll(unloadedFavNames);
+        return names;
+    }
+
     /**
      * Changes isFavourite property of specified photo to true and adds the photo this photo managers
      * favPhotos array list if it doesnt already exist.
@@ -119,9 +297,8 @@ public class PhotoManager {
      */
     private void favPhoto(Photo photo) throws Exception {
         photo.setIsFavourite(true);
-        if (!this.favPhotos.contains(photo)) {
-            this.favPhotos.add(photo);
-            FH.logToText(this, false);
+        if (this.favPhotos.add(photo)) {
+            FH.markDirty();
         }
     }
 
@@ -133,9 +310,8 @@ public class PhotoManager {
      */
     private void unFavPhoto(Photo photo) throws Exception {
         photo.setIsFavourite(false);
-        if (this.favPhotos.contains(photo)) {
-            this.favPhotos.remove(photo);
-            FH.logToText(this, false);
+        if (this.favPhotos.remove(photo)) {
+            FH.markDirty();
         }
     }
 
@@ -145,12 +321,14 @@ public class PhotoManager {
      * @param photo the Photo of interest.
      * @param isFav boolean value indicating the specified photos isFavourite property
      */
-    public void setFavourite(Photo photo, boolean isFav) throws Exception {
+    public synchronized void setFavourite(Photo photo, boolean isFav) throws Exception {
+        boolean wasFav = photo.getIsFavourite();
         if (isFav) {
             this.favPhoto(photo);
         } else {
             this.unFavPhoto(photo);
         }
+        if (wasFav != isFav) events.publish(new PhotoEvent.FavouriteChanged(photo, isFav));
     }
 
     /**
@@ -160,10 +338,15 @@ public class PhotoManager {
      * @param photo the Photo to add to this PhotoManager.
      */
     private void addPhoto(Photo photo) throws Exception {
+        photo.setJournal(journal);
         this.photoMaster.add(photo);
+        baseNames.add(photo.toString());
+        tagIndex.addPhoto(photo);
+        sortedPhotos.add(photo);
         for (String tag : photo.getTags()) {
-            if (!tagMaster.contains(tag)) this.addTag(tag, photo);
+            if (!tagMaster.contains(tag)) this.addTag(tag);
         }
+        events.publish(new PhotoEvent.PhotoAdded(photo));
     }
 
     /**
@@ -171,7 +354,7 @@ public class PhotoManager {
      *
      * @param tag the Tag to add to this PhotoManager.
      */
-    public void addTag(String tag) throws Exception {
+    public synchronized void addTag(String tag) throws Exception {
         if (!this.tagMaster.contains(tag)) {
             if (tag.matches(".*[<>:\"/|?*\\\\].*") ||       // Illegal char in general
                     tag.matches(".*[\\s.]") ||                  // Name ends in " " or "."
@@ -180,7 +363,8 @@ public class PhotoManager {
             } else {
                 this.tagMaster.add(tag);
                 // records the change into the config file
-                TH.logToText(this, true);
+                TH.markDirty();
+                events.publish(new PhotoEvent.TagAdded(tag, null));
             }
         }
     }
@@ -192,12 +376,20 @@ public class PhotoManager {
      * @param tag   the Tag to add to this PhotoManager.
      * @param photo the Photo to add the given Tag to.
      */
-    public void addTag(String tag, Photo photo) throws Exception {
-        if (!photo.getTags().contains(tag)) {
+    public synchronized void addTag(String tag, Photo photo) throws Exception {
+        awaitRelocated(Collections.singletonList(photo));
+        if (!photo.hasTag(tag)) {
+            String oldName = photo.toString();
             photo.addTag(tag);
+            if (photo.hasTag(tag)) {
+                tagIndex.add(tag, photo);
+                events.publish(new PhotoEvent.TagAdded(tag, photo));
+                photoRenamed(photo, oldName);
+            }
         }
         addTag(tag);
-        FH.logToText(this, false);
+        // The name recorded in FavList.txt only changes if the Photo is a favourite
+        if (photo.getIsFavourite()) FH.markDirty();
     }
 
     /**
@@ -206,17 +398,21 @@ public class PhotoManager {
      *
      * @param tag the Tag to remove from this PhotoManager.
      */
-    public void removeTag(String tag) throws Exception {
-        // Removes tag from any Photo containing it
-        for (Photo p : photoMaster) {
-            if (p.getTags().contains(tag)) {
-                p.removeTag(tag);
-            }
-        }
-        if (this.tagMaster.contains(tag)) {
-            this.tagMaster.remove(tag);
-            TH.logToText(this, true);
+    public synchronized void removeTag(String tag) throws Exception {
+        // Removes tag from any Photo containing it, once none of them is being moved
+        ArrayList<Photo> photos;
+        do {
+            photos = tagIndex.photos(tag);
+        } while (awaitRelocated(photos));
+        for (Photo p : photos) {
+            String oldName = p.toString();
+            p.removeTag(tag);
+            tagIndex.remove(tag, p);
+            if (p.getIsFavourite()) FH.markDirty();
+            events.publish(new PhotoEvent.TagRemoved(tag, p));
+            photoRenamed(p, oldName);
         }
+        removeFromTagMaster(tag);
     }
 
     /**
@@ -226,12 +422,259 @@ public class PhotoManager {
      * @param tag   the Tag to remove from this PhotoManager.
      * @param photo the Photo to remove tag from.
      */
-    public void removeTag(String tag, Photo photo) throws Exception {
+    public synchronized void removeTag(String tag, Photo photo) throws Exception {
+        awaitRelocated(Collections.singletonList(photo));
         // checks the desired Photo to see if it contains tag for removal
-        if (photo.getTags().contains(tag)) {
+        if (photo.hasTag(tag)) {
+            String oldName = photo.toString();
             photo.removeTag(tag);
+            tagIndex.remove(tag, photo);
+            if (photo.getIsFavourite()) FH.markDirty();
+            events.publish(new PhotoEvent.TagRemoved(tag, photo));
+            photoRenamed(photo, oldName);
+        }
+    }
+
+    /**
+     * Adds the tags in add to each of photos and removes the tags in remove from them, renaming each photo file only
+     * once and logging one new name for it. The files are renamed RENAME_THREADS at a time without the lock of this
+     * PhotoManager, which is only taken to plan the renames and then to apply them. A Photo whose file cannot be
+     * renamed keeps its old name and tags, and the first such failure is thrown once every other Photo is done.
+     *
+     * @param photos the Photos of this PhotoManager to change
+     * @param add    the tags to add to each Photo, and to this PhotoManager
+     * @param remove the tags to remove from each Photo
+     * @throws IOException if a tag in add is illegal, in which case nothing is changed
+     */
+    public void applyTagChanges(Collection<Photo> photos, Set<String> add, Set<String> remove) throws Exception {
+        ArrayList<String> created = new ArrayList<>();
+        LinkedHashMap<Photo, ArrayList<String>> newTags = new LinkedHashMap<>();
+        LinkedHashMap<Photo, String> newNames = new LinkedHashMap<>();
+        ArrayList<Path> files = new ArrayList<>();
+        synchronized (this) {
+            checkTags(add);
+            awaitRelocated(photos);
+            // Tags new to this PhotoManager are registered up front and dropped again if no rename gave them to a Photo
+            for (String tag : add) {
+                if (!tagMaster.contains(tag)) created.add(tag);
+                addTag(tag);
+            }
+            for (Photo photo : photos) {
+                if (!tagIndex.contains(photo) || newTags.containsKey(photo)) continue;
+                ArrayList<String> tags = photo.tagsAfter(add, remove);
+                if (tags == null) continue;
+                String newName = Photo.updateName(photo.toString(), tags);
+                newTags.put(photo, tags);
+                newNames.put(photo, newName);
+                files.add(photo.getPath());
+                files.add(photo.pathNamed(newName));
+            }
+            // The Photos are held in relocating, as by relocatePhotos, so nothing else changes them until renamed
+            relocating.addAll(newTags.keySet());
+            relocatingFiles.addAll(files);
+        }
+
+        Exception failure = null;
+        try {
+            // The files are renamed without the lock, and the Photos only changed under it once every rename has ended
+            ArrayList<Future<Path>> renames = new ArrayList<>();
+            for (Photo photo : newTags.keySet()) {
+                String newName = newNames.get(photo);
+                renames.add(RENAMERS.submit(() -> photo.renameFile(newName)));
+            }
+            LinkedHashMap<Photo, Path> renamed = new LinkedHashMap<>();
+            int i = 0;
+            for (Photo photo : newTags.keySet()) {
+                try {
+                    renamed.put(photo, awaitFile(renames.get(i++)));
+                } catch (ExecutionException e) {
+                    Exception cause = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                    if (failure == null) failure = cause;
+                    else failure.addSuppressed(cause);
+                }
+            }
+
+            synchronized (this) {
+                boolean favouritesChanged = false;
+                for (Map.Entry<Photo, Path> entry : renamed.entrySet()) {
+                    Photo photo = entry.getKey();
+                    String oldName = photo.toString();
+                    ArrayList<String> oldTags = photo.getTags();
+                    photo.renamed(newNames.get(photo), newTags.get(photo), entry.getValue());
+                    if (loading) movedWhileLoading.add(entry.getValue());
+                    for (String tag : oldTags) {
+                        if (!photo.hasTag(tag)) {
+                            tagIndex.remove(tag, photo);
+                            events.publish(new PhotoEvent.TagRemoved(tag, photo));
+                        }
+                    }
+                    for (String tag : photo.getTags()) {
+                        if (!oldTags.contains(tag)) {
+                            tagIndex.add(tag, photo);
+                            events.publish(new PhotoEvent.TagAdded(tag, photo));
+                        }
+                    }
+                    favouritesChanged |= photo.getIsFavourite();
+                    photoRenamed(photo, oldName);
+                }
+                // The name recorded in FavList.txt only changes if a renamed Photo is a favourite
+                if (favouritesChanged) FH.markDirty();
+                if (failure != null) clearUnusedTags(created);
+            }
+        } finally {
+            synchronized (this) {
+                relocating.removeAll(newTags.keySet());
+                relocatingFiles.removeAll(files);
+                notifyAll();
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    /**
+     * Waits for a rename or move of a file to finish, even if the waiting thread is interrupted, since neither the
+     * lock of this PhotoManager nor the Photo being changed may be let go while its file is still being renamed or
+     * moved.
+     *
+     * @return the result of the rename or move
+     * @throws ExecutionException if the file could not be renamed or moved
+     */
+    private static <T> T awaitFile(Future<T> operation) throws ExecutionException {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return operation.get();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
         }
-        FH.logToText(this, false);
+    }
+
+    /**
+     * @throws IOException if any of tags could never be added to a Photo
+     */
+    private static void checkTags(Collection<String> tags) throws IOException {
+        for (String tag : tags) {
+            if (!Photo.validateTag(tag, new ArrayList<>())) throw new IOException("Illegal character in tag.");
+        }
+    }
+
+    /**
+     * Starts adding the tags in add to each of photos and removing the tags in remove from them, as applyTagChanges
+     * does, on a background thread.
+     *
+     * @param photos the Photos of this PhotoManager to change
+     * @param add    the tags to add to each Photo, and to this PhotoManager
+     * @param remove the tags to remove from each Photo
+     * @return the BulkJob following the change, which can be cancelled
+     * @throws IOException if a tag in add is illegal, in which case the job is not started
+     */
+    public BulkJob startTagChanges(Collection<Photo> photos, Set<String> add, Set<String> remove)
+            throws IOException {
+        checkTags(add);
+        Set<String> adding = new LinkedHashSet<>(add);
+        Set<String> removing = new HashSet<>(remove);
+        return startBulkJob(adding.isEmpty() ? "Removing tags from" : "Tagging", photos,
+                chunk -> applyTagChanges(chunk, adding, removing));
+    }
+
+    /**
+     * Starts favouriting or unfavouriting each of photos on a background thread.
+     *
+     * @param photos the Photos of this PhotoManager to change
+     * @param isFav  whether each Photo becomes a favourite
+     * @return the BulkJob following the change, which can be cancelled
+     */
+    public BulkJob startSetFavourite(Collection<Photo> photos, boolean isFav) {
+        return startBulkJob(isFav ? "Favouriting" : "Unfavouriting", photos, chunk -> {
+            synchronized (this) {
+                for (Photo photo : chunk) {
+                    setFavourite(photo, isFav);
+                }
+            }
+        });
+    }
+
+    /**
+     * Starts moving each of photos to directory on a background thread, as movePhoto does. A Photo which cannot be
+     * moved stays where it is, and the job goes on with the rest.
+     *
+     * @param photos    the Photos of this PhotoManager to move
+     * @param directory the directory to move them to
+     * @return the RelocateJob following the moves, which can be cancelled
+     */
+    public RelocateJob startMove(Collection<Photo> photos, String directory) {
+        return startRelocate(photos, Paths.get(directory), RelocateRule.DIRECTORY);
+    }
+
+    /**
+     * Starts moving each of photos into the directory rule chooses for it within directory on a background thread,
+     * as relocatePhotos does. A Photo which cannot be moved stays where it is, and the job goes on with the rest.
+     *
+     * @param photos    the Photos of this PhotoManager to move
+     * @param directory the directory to move them into, on any volume
+     * @param rule      chooses the directory within directory each Photo is moved into
+     * @return the RelocateJob following the moves and summing them up, which can be cancelled
+     */
+    public RelocateJob startRelocate(Collection<Photo> photos, Path directory, RelocateRule rule) {
+        RelocateJob job = new RelocateJob("Moving", photos.size());
+        startBulkJob(job, photos, chunk -> relocatePhotos(chunk, directory, rule, job));
+        return job;
+    }
+
+    /**
+     * Starts making change to photos on a background thread, BULK_CHUNK Photos at a time, each chunk under the lock
+     * of this PhotoManager so other changes can be made between chunks. The events of the whole job are delivered
+     * as one batch when it ends.
+     *
+     * @param description what the job does, such as "Tagging"
+     * @param photos      the Photos to change
+     * @param change      makes the change to one chunk of photos
+     * @return the BulkJob following the change, which can be cancelled
+     */
+    private BulkJob startBulkJob(String description, Collection<Photo> photos, ChunkChange change) {
+        BulkJob job = new BulkJob(description, photos.size());
+        startBulkJob(job, photos, change);
+        return job;
+    }
+
+    /**
+     * Starts making change to photos on a background thread, as above, followed by job.
+     */
+    private void startBulkJob(BulkJob job, Collection<Photo> photos, ChunkChange change) {
+        ArrayList<Photo> todo = new ArrayList<>(photos);
+        Thread worker = new Thread(() -> {
+            Exception failure = null;
+            events.hold();
+            try {
+                for (int start = 0; start < todo.size() && !job.isCancelled(); start += BULK_CHUNK) {
+                    List<Photo> chunk = todo.subList(start, Math.min(todo.size(), start + BULK_CHUNK));
+                    try {
+                        change.apply(chunk);
+                    } catch (Exception e) {     // the rest of the Photos are still changed
+                        if (failure == null) failure = e;
+                        else failure.addSuppressed(e);
+                    }
+                    job.photosDone(chunk.size());
+                }
+            } finally {
+                events.release();
+                job.finish(failure);
+            }
+        }, "Bulk photo job");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * A change made to each chunk of the Photos of a BulkJob.
+     */
+    private interface ChunkChange {
+        void apply(List<Photo> chunk) throws Exception;
     }
 
     /**
@@ -241,100 +684,531 @@ public class PhotoManager {
      * @param photo the Photo to restore to a previous version
      * @param index the index of the nameHistory to restore to
      */
-    public void restoreName(Photo photo, int index) throws Exception {
+    public synchronized void restoreName(Photo photo, int index) throws Exception {
+        awaitRelocated(Collections.singletonList(photo));
         ArrayList<String> oldTags = photo.getTags();
-        photo.restoreName(index);
+        String oldName = photo.toString();
+        baseNames.remove(photo.toString());
+        tagIndex.removeAll(photo);
+        try {
+            photo.restoreName(index);
+        } finally {
+            baseNames.add(photo.toString());
+            tagIndex.addAll(photo);
+        }
 
         // Clears old tags from tagMaster that may/may not still be needed
         for (String tagClear : oldTags) {
-            boolean tagPresent = false;
-            // checks through photoMaster to see if there are any Photos containing tag
-            for (Photo p : photoMaster) {
-                if (p.getTags().contains(tagClear)) {
-                    tagPresent = true;
-                    break;
-                }
-            }
+            if (!photo.hasTag(tagClear)) events.publish(new PhotoEvent.TagRemoved(tagClear, photo));
             // if no Photos contain tag then remove tag from tagMaster
-            if (!tagPresent && this.tagMaster.contains(tagClear)) {
-                this.tagMaster.remove(tagClear);
-                TH.logToText(this, true);
-            }
+            if (!tagIndex.isUsed(tagClear)) removeFromTagMaster(tagClear);
         }
 
         // Re-adds all tags currently used by the renamed Photo
         for (String tagReturn : photo.getTags()) {
             addTag(tagReturn);
+            if (!oldTags.contains(tagReturn)) events.publish(new PhotoEvent.TagAdded(tagReturn, photo));
+        }
+        if (photo.getIsFavourite()) FH.markDirty();
+        if (!oldName.equals(photo.toString())) {
+            photoRenamed(photo, oldName);
+        }
+    }
+
+    /**
+     * Moves photo to its place in the sort order after it was renamed, and publishes the rename.
+     *
+     * @param photo   the Photo that was renamed
+     * @param oldName the name of photo before it was renamed
+     */
+    private void photoRenamed(Photo photo, String oldName) {
+        sortedPhotos.update(photo);
+        events.publish(new PhotoEvent.PhotoRenamed(photo, oldName, photo.toString()));
+    }
+
+    /**
+     * Removes tag from tagMaster, if it is there.
+     *
+     * @param tag the tag no Photo uses any more
+     */
+    private void removeFromTagMaster(String tag) {
+        if (this.tagMaster.remove(tag)) {
+            TH.markDirty();
+            events.publish(new PhotoEvent.TagRemoved(tag, null));
         }
-        FH.logToText(this, false);
     }
 
     /**
      * Moves the photo to a different directory
-     * <p>
-     * design similar to the updateFileName in photo
-     * accessed the links below as reference on Nov 16, 2017
-     * https://www.tutorialspoint.com/javaexamples/file_rename.htm
      *
      * @param directory the directory to change to
      * @param photo     the photo to move
      */
-
     public void movePhoto(String directory, Photo photo) throws Exception {
-        if (this.photoMaster.contains(photo)) {
-            File oldFile = photo.getPath().toFile();
-            if (!directory.contains(path.toString())) {  // Only removes Photo from PhotoManager if moved outside root
-                ArrayList<String> tagsToClear = photo.getTags();
-                this.photoMaster.remove(photo);
-                if (this.favPhotos.contains(photo)) {
-                    this.favPhotos.remove(photo);
+        relocatePhotos(Collections.singletonList(photo), Paths.get(directory), RelocateRule.DIRECTORY,
+                new RelocateJob("Moving", 1));
+    }
+
+    /**
+     * Moves the file of each of photos into the directory rule chooses for it within directory, recording each move
+     * in job. Photos moved outside the root leave this PhotoManager.
+     * <p>
+     * Every move is planned under the lock of this PhotoManager, so no two Photos are moved to the same file. The lock
+     * is then let go while the files are moved, MOVE_THREADS at a time and at most MOVES_PER_VOLUME at a time to or
+     * from any one volume, so the Photos can still be browsed during a long copy to another disk. Until the moves end
+     * the Photos are held in relocating: their files are not renamed, and loading and sync leave their old and new
+     * files alone. The lock is taken again to apply every move, and the Photos which left are removed together, in one
+     * pass over each collection. A Photo whose file cannot be moved stays where it is, and the first such failure is
+     * thrown once every other Photo is done.
+     *
+     * @param photos    the Photos of this PhotoManager to move
+     * @param directory the directory to move them into, on any volume
+     * @param rule      chooses the directory within directory each Photo is moved into
+     * @param job       records the outcome of each move
+     */
+    void relocatePhotos(Collection<Photo> photos, Path directory, RelocateRule rule, RelocateJob job)
+            throws Exception {
+        Exception failure = null;
+        LinkedHashMap<Photo, Path> sources = new LinkedHashMap<>();
+        LinkedHashMap<Photo, Path> targets = new LinkedHashMap<>();
+        LinkedHashMap<Photo, String> names = new LinkedHashMap<>();
+        synchronized (this) {
+            awaitRelocated(photos);
+            HashSet<Path> planned = new HashSet<>();
+            for (Photo photo : photos) {
+                if (!tagIndex.contains(photo) || targets.containsKey(photo)) continue;
+                Path newPath = rule.directoryFor(photo, directory).resolve(photo.getPath().getFileName());
+                Path target = newPath.toAbsolutePath().normalize();
+                if (target.equals(photo.getPath().toAbsolutePath().normalize())) {
+                    job.alreadyInPlace();
+                } else if (!planned.add(target) || relocatingFiles.contains(newPath)) {
+                    failure = moveFailed(job, photo.getPath(), new FileAlreadyExistsException(newPath.toString()),
+                            failure);
+                } else {
+                    sources.put(photo, photo.getPath());
+                    targets.put(photo, newPath);
+                    names.put(photo, photo.toString());
+                }
+            }
+            relocating.addAll(targets.keySet());
+            relocatingFiles.addAll(sources.values());
+            relocatingFiles.addAll(targets.values());
+        }
+
+        try {
+            // Each move is journaled before it is made, so nothing changes if it cannot be made
+            ArrayList<Future<Long>> moves = new ArrayList<>();
+            for (Photo photo : targets.keySet()) {
+                Path oldPath = sources.get(photo);
+                Path newPath = targets.get(photo);
+                String name = names.get(photo);
+                moves.add(MOVERS.submit(() -> {
+                    Files.createDirectories(newPath.getParent());
+                    long intent = journal.begin(oldPath, newPath, name, name);
+                    List<Semaphore> permits = VOLUMES.acquire(oldPath, newPath.getParent());
+                    try {
+                        long copied = FileMover.move(oldPath, newPath);
+                        journal.commit(intent);
+                        return copied;
+                    } catch (IOException e) {
+                        journal.abort(intent);
+                        throw e;
+                    } finally {
+                        VOLUMES.release(permits);
+                    }
+                }));
+            }
+            ArrayList<Exception> outcomes = new ArrayList<>();
+            for (Future<Long> move : moves) {
+                try {
+                    job.bytesMoved(awaitFile(move));
+                    outcomes.add(null);
+                } catch (ExecutionException e) {
+                    outcomes.add(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+                }
+            }
+
+            synchronized (this) {
+                Path root = path.toAbsolutePath().normalize();
+                ArrayList<Photo> leaving = new ArrayList<>();
+                ArrayList<PhotoEvent> moved = new ArrayList<>();
+                int i = 0;
+                for (Photo photo : targets.keySet()) {
+                    Path oldPath = sources.get(photo);
+                    Path newPath = targets.get(photo);
+                    Exception outcome = outcomes.get(i++);
+                    if (outcome != null) {
+                        failure = moveFailed(job, oldPath, outcome, failure);
+                        continue;
+                    }
+                    photo.setPath(newPath);
+                    boolean removed = !newPath.toAbsolutePath().normalize().startsWith(root);
+                    if (removed) {  // Only removes Photo from PhotoManager if moved outside root
+                        leaving.add(photo);
+                    } else if (loading) {
+                        movedWhileLoading.add(newPath);
+                    }
+                    job.moved(newPath.getParent(), removed);
+                    moved.add(new PhotoEvent.PhotoMoved(photo, oldPath, newPath, removed));
                 }
 
-                // Removes any tag from this PhotoManager used exclusively by the moved Photo
-                for (String clearedTag : tagsToClear) {
-                    removeTag(clearedTag);
+                // The Photos which left are removed together, along with any tag used only by them
+                forgetPhotos(leaving);
+                LinkedHashSet<String> tagsToClear = new LinkedHashSet<>();
+                for (Photo photo : leaving) {
+                    tagsToClear.addAll(photo.getTags());
+                }
+                for (PhotoEvent event : moved) {
+                    events.publish(event);
                 }
+                clearUnusedTags(tagsToClear);
+            }
+        } finally {
+            synchronized (this) {
+                relocating.removeAll(targets.keySet());
+                relocatingFiles.removeAll(sources.values());
+                relocatingFiles.removeAll(targets.values());
+                notifyAll();
             }
+        }
+        if (failure != null) throw failure;
+    }
 
-            // Relocates the Photo to its new directory
-            String oldName;
-            // generates the name of file based on os
-            if (path.toString().contains("/")) {
-                oldName = "/" + photo.getPath().getFileName().toString();
-            } else {
-                oldName = "\\" + photo.getPath().getFileName().toString();
+    /**
+     * Waits until none of photos is being moved by relocatePhotos or renamed by applyTagChanges, letting go of the
+     * lock of this PhotoManager meanwhile, so a photo file is never changed twice at once. The wait goes on even if
+     * the waiting thread is interrupted, as awaitFile does.
+     *
+     * @param photos the Photos about to be changed
+     * @return true if it had to wait, in which case anything read from this PhotoManager before may be out of date
+     */
+    private boolean awaitRelocated(Collection<Photo> photos) {
+        boolean waited = false;
+        boolean interrupted = false;
+        while (isRelocating(photos)) {
+            try {
+                wait();
+            } catch (InterruptedException e) {
+                interrupted = true;
             }
-            // sets the new path of the photo
-            photo.setPath(Paths.get(directory + oldName));
-            File newName = new File(directory + oldName);
-            boolean success = oldFile.renameTo(newName);
-            if (!success) throw new IOException("Error moving photo to directory.");
+            waited = true;
         }
-        FH.logToText(this, false);
+        if (interrupted) Thread.currentThread().interrupt();
+        return waited;
     }
 
     /**
-     * Return the photoMaster of this PhotoManager as an ArrayList of
-     * Photo to be viewed by a client interacting with DirectoryManager.
+     * @return true if any of photos is being moved by relocatePhotos
+     */
+    private boolean isRelocating(Collection<Photo> photos) {
+        if (relocating.isEmpty()) return false;
+        for (Photo photo : photos) {
+            if (relocating.contains(photo)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Records in job that the Photo in file could not be moved because of cause.
+     *
+     * @return failure with the new failure added as suppressed, or the new failure if failure is null
+     */
+    private static Exception moveFailed(RelocateJob job, Path file, Exception cause, Exception failure) {
+        IOException e = new IOException("Error moving photo to directory.", cause);
+        job.failed(file, e);
+        if (failure == null) return e;
+        failure.addSuppressed(e);
+        return failure;
+    }
+
+    /**
+     * Starts watching the files of this PhotoManager, so photo files added, deleted, renamed or changed outside the
+     * program are applied as they happen. If the Photos are still loading, watching starts once they have loaded.
+     *
+     * @throws IOException if the file system cannot be watched
+     */
+    public synchronized void startWatching() throws IOException {
+        if (watcher == null) {
+            watcher = new LibraryWatcher(this);
+            if (loaded) watcher.start();
+        }
+    }
+
+    /**
+     * Stops watching the files of this PhotoManager.
+     */
+    public synchronized void stopWatching() {
+        if (watcher != null) {
+            watcher.close();
+            watcher = null;
+        }
+    }
+
+    /**
+     * Brings the Photos of each of directories in step with the photo files in it, adding a Photo for each new
+     * file and removing the Photo of each file that is gone. Each directory is listed under the lock of this
+     * PhotoManager, so a rename made by the program is never half seen.
+     *
+     * @param directories   the directories whose files were added, deleted or renamed
+     * @param modifiedFiles the photo files whose contents changed
+     * @throws Exception if a Photo cannot be added
+     */
+    synchronized void sync(Collection<Path> directories, Collection<Path> modifiedFiles) throws Exception {
+        HashMap<Path, ArrayList<Photo>> photosByDirectory = new HashMap<>();
+        HashMap<Path, Photo> photosByPath = new HashMap<>();
+        for (Photo photo : photoMaster) {
+            photosByDirectory.computeIfAbsent(photo.getPath().getParent(), d -> new ArrayList<>()).add(photo);
+            photosByPath.put(photo.getPath(), photo);
+        }
+
+        // The Photos whose files are gone are forgotten together, before any new file takes up their names
+        ArrayList<Photo> gone = new ArrayList<>();
+        LinkedHashSet<Path> added = new LinkedHashSet<>();
+        for (Path directory : directories) {
+            LinkedHashSet<Path> files = new LinkedHashSet<>();
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+                for (Path entry : stream) {
+                    if (DirectoryScanner.isPhoto(entry) && !Files.isDirectory(entry)) files.add(entry);
+                }
+            } catch (NoSuchFileException | NotDirectoryException e) {
+                // The directory is gone, so every Photo in it is too
+            }
+
+            files.removeAll(relocatingFiles);   // the files of Photos being moved, which are applied once moved
+            for (Photo photo : photosByDirectory.getOrDefault(directory, new ArrayList<>())) {
+                if (!files.remove(photo.getPath()) && !relocating.contains(photo)) {
+                    gone.add(photo);
+                    photosByPath.remove(photo.getPath());
+                }
+            }
+            added.addAll(files);    // the files left are new
+        }
+
+        if (!gone.isEmpty()) {
+            LinkedHashSet<String> tags = new LinkedHashSet<>();
+            for (Photo photo : gone) {
+                tags.addAll(photo.getTags());
+            }
+            forgetPhotos(gone);
+            for (Photo photo : gone) {
+                events.publish(new PhotoEvent.PhotoRemoved(photo));
+            }
+            clearUnusedTags(tags);
+        }
+        for (Path file : added) {
+            initializePhoto(file);
+        }
+
+        for (Path file : modifiedFiles) {
+            Photo photo = photosByPath.get(file);
+            if (photo != null && !added.contains(file)) {
+                photo.fileChanged();
+                sortedPhotos.update(photo);
+                events.publish(new PhotoEvent.PhotoModified(photo));
+            }
+        }
+    }
+
+    /**
+     * Removes photos from photoMaster and every other collection of this PhotoManager, leaving their files alone, in
+     * one pass over each collection rather than one per Photo.
      *
-     * @return an ArrayList of the photoMaster of this PhotoManager.
+     * @param photos the Photos leaving this PhotoManager
      */
-    public ArrayList<Photo> getPhotoMaster() {
-        return this.photoMaster;
+    private void forgetPhotos(Collection<Photo> photos) {
+        if (photos.isEmpty()) return;
+        Set<Photo> leaving = Collections.newSetFromMap(new IdentityHashMap<>());
+        leaving.addAll(photos);
+        this.photoMaster.removeIf(leaving::contains);
+        sortedPhotos.removeAll(leaving);
+        for (Photo photo : leaving) {
+            baseNames.remove(photo.toString());
+            if (this.favPhotos.remove(photo)) FH.markDirty();
+            tagIndex.removePhoto(photo);
+        }
     }
 
     /**
-     * Returns an ArrayList containing all the names of the Photos contained
-     * in this PhotoManager's photoMaster.
+     * Removes each of tags from tagMaster if no Photo uses it any more.
      *
-     * @return an ArrayList of the names of the Photos in this PhotoManager.
+     * @param tags the tags of Photos which have left this PhotoManager
      */
-    private ArrayList<String> getPhotoMasterNames() {
-        ArrayList<String> photoMasterNames = new ArrayList<>(getPhotoMaster().size());
-        for (Photo eachPhoto : getPhotoMaster()) {
-            photoMasterNames.add(eachPhoto.toString());
+    private void clearUnusedTags(Collection<String> tags) {
+        for (String tag : tags) {
+            if (!tagIndex.isUsed(tag)) removeFromTagMaster(tag);
         }
-        return photoMasterNames;
+    }
+
+    /**
+     * Returns a copy of the Photos of this PhotoManager, in the current sort order.
+     *
+     * @return the Photos of this PhotoManager, sorted
+     */
+    public synchronized ArrayList<Photo> getSortedPhotos() {
+        return sortedPhotos.photos();
+    }
+
+    /**
+     * Returns the keys the Photos of this PhotoManager were last sorted by, in the current sort order.
+     *
+     * @return the SortKeys of the Photos of this PhotoManager, sorted
+     */
+    public synchronized ArrayList<SortKey> getSortKeys() {
+        return sortedPhotos.keys();
+    }
+
+    /**
+     * Returns the key photo was last sorted by, which only changes when photo moves in the sort order.
+     *
+     * @param photo a Photo of this PhotoManager
+     * @return the SortKey of photo
+     */
+    public synchronized SortKey getSortKey(Photo photo) {
+        return sortedPhotos.keyOf(photo);
+    }
+
+    /**
+     * Returns a Comparator which puts Photos in the same order as getSortedPhotos.
+     *
+     * @return the Comparator of the current sort order
+     */
+    public Comparator<Photo> getSortComparator() {
+        return (a, b) -> {
+            synchronized (this) {
+                return sortedPhotos.compare(a, b);
+            }
+        };
+    }
+
+    /**
+     * Sorts the Photos of this PhotoManager in order, which they are then kept in as they change.
+     *
+     * @param order the order to sort Photos in
+     */
+    public synchronized void setSortOrder(PhotoOrder order) {
+        if (order != sortedPhotos.getOrder()) sortedPhotos.setOrder(order);
+    }
+
+    /**
+     * @return the order the Photos of this PhotoManager are sorted in
+     */
+    public synchronized PhotoOrder getSortOrder() {
+        return sortedPhotos.getOrder();
+    }
+
+    /**
+     * Returns the EventBus through which a PhotoEvent is published for each change made to this PhotoManager.
+     *
+     * @return the EventBus of this PhotoManager
+     */
+    public EventBus getEvents() {
+        return events;
+    }
+
+    /**
+     * Writes any unsaved changes to TagsList.txt and FavList.txt immediately, and deletes the rename journal if no
+     * rename is in progress. Changes are otherwise written shortly after they are made, and when the program exits.
+     *
+     * @throws IOException if either file cannot be written
+     */
+    public void flush() throws IOException {
+        TH.flush();
+        FH.flush();
+        journal.checkpoint();
+    }
+
+    /**
+     * Stops watching, saves any pending changes and closes the name histories of the directories of this
+     * PhotoManager, once it is no longer shown.
+     *
+     * @throws IOException if a change cannot be saved
+     */
+    public void close() throws IOException {
+        stopWatching();
+        flush();
+        NameHistoryStore.closeAll(path);
+    }
+
+    /**
+     * Compacts the name history of every directory of this PhotoManager that has grown past its HistoryRetention.
+     * This is done in the background shortly after loading, but may be called to compact immediately.
+     *
+     * @throws IOException if a name history cannot be compacted
+     */
+    public void compactHistory() throws IOException {
+        HistoryCompactor.compact(this);
+    }
+
+    /**
+     * @return how much name history is kept for the directories of this PhotoManager
+     */
+    public HistoryRetention getHistoryRetention() {
+        return historyRetention;
+    }
+
+    /**
+     * Sets how much name history is kept for the directories of this PhotoManager, from the next compaction on.
+     *
+     * @param historyRetention the new HistoryRetention
+     */
+    public void setHistoryRetention(HistoryRetention historyRetention) {
+        this.historyRetention = historyRetention;
+    }
+
+    /**
+     * Return a copy of the photoMaster of this PhotoManager as an ArrayList of
+     * Photo to be viewed by a client interacting with DirectoryManager.
+     * A copy is returned since the loader and the LibraryWatcher change photoMaster from other threads.
+     *
+     * @return a new ArrayList of the photoMaster of this PhotoManager.
+     */
+    public synchronized ArrayList<Photo> getPhotoMaster() {
+        return new ArrayList<>(this.photoMaster);
+    }
+
+    /**
+     * Returns the Photos in this PhotoManager carrying the given tag.
+     *
+     * @param tag the tag to look up
+     * @return a new list of the Photos carrying tag, empty if no Photo carries it
+     */
+    public synchronized ArrayList<Photo> photosWithTag(String tag) {
+        return tagIndex.photos(tag);
+    }
+
+    /**
+     * Returns the Photos in this PhotoManager matching a boolean expression over tags,
+     * such as "beach AND (2017 OR 2018) AND NOT blurry".
+     * The keywords AND, OR and NOT must be in capitals, and tags containing spaces or parentheses can be quoted.
+     *
+     * @param expression the query to evaluate
+     * @return a new list of the matching Photos
+     * @throws ParseException if expression is empty or not well formed
+     */
+    public synchronized ArrayList<Photo> query(String expression) throws ParseException {
+        return tagIndex.query(new TagQuery(expression));
+    }
+
+    /**
+     * Returns true if photo matches a boolean expression over tags, as described in query.
+     *
+     * @param expression the query to evaluate
+     * @param photo      the Photo to test
+     * @return whether photo matches expression
+     * @throws ParseException if expression is empty or not well formed
+     */
+    public synchronized boolean matches(String expression, Photo photo) throws ParseException {
+        return new TagQuery(expression).matches(photo);
+    }
+
+    /**
+     * Returns the number of Photos in this PhotoManager carrying the given tag.
+     *
+     * @param tag the tag to look up
+     * @return how many Photos carry tag
+     */
+    public synchronized int tagUsageCount(String tag) {
+        return tagIndex.count(tag);
     }
 
     /**
@@ -347,29 +1221,38 @@ public class PhotoManager {
     }
 
     /**
-     * Return the tagMaster of this PhotoManager as an ArrayList of String representing the tags
+     * Return the tagMaster of this PhotoManager as a read-only Set of String representing the tags
+     *
+     * @return a read-only view of the tagMaster of this PhotoManager, in the order the tags were added.
+     */
+    public Set<String> getTagMaster() {
+        return Collections.unmodifiableSet(this.tagMaster);
+    }
+
+    /**
+     * Returns the favourite photos of the photo manager
      *
-     * @return an ArrayList of the photoMaster of this PhotoManager.
+     * @return a read-only view of the favourited photos, in the order they were favourited
      */
-    public ArrayList<String> getTagMaster() {
-        return this.tagMaster;
+    Set<Photo> getFavPhotos() {
+        return Collections.unmodifiableSet(this.favPhotos);
     }
 
     /**
-     * Returns the list of favourite photos of the photo manager
+     * Returns the favourite photos names of the photo manager
      *
-     * @return Array list of favourited photos
+     * @return a read-only view of the favourite photo names
      */
-    ArrayList<Photo> getFavPhotos() {
-        return this.favPhotos;
+    Set<String> getFavPhotosNames() {
+        return Collections.unmodifiableSet(this.favPhotoNames);
     }
 
     /**
-     * Returns the list of favourite photos names of the photo manager
+     * Records the name of a Photo that was favourited before this PhotoManager was last closed
      *
-     * @return the Array list of favourite photo names
+     * @param name the name of the favourited Photo
      */
-    ArrayList<String> getFavPhotosNames() {
-        return this.favPhotoNames;
+    void addFavPhotoName(String name) {
+        this.favPhotoNames.add(name);
     }
 }
@@ -3,9 +3,16 @@ package PhotoManaging;
 import junit.framework.TestCase;
 import org.junit.Test;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
 
 public class PhotoManagerTest extends TestCase {
     public PhotoManagerTest() throws Exception {
@@ -51,10 +58,41 @@ public class PhotoManagerTest extends TestCase {
         assertEquals("testName (4) @t1 @t2 @t3 @t4", newName);
     }
 
+    @Test
+    public void testUniqueName4() {
+        String originalName = "testName (2) @t1";
+        ArrayList<String> existingNames = new ArrayList<>();
+        existingNames.add("testName");
+        existingNames.add("testName (2) @random1");
+        existingNames.add("testName2 (2)");
+        String newName = PhotoManager.uniqueName(originalName, existingNames);
+        assertEquals("testName (2) @t1", newName);     // the base name is matched as a regular expression
+    }
+
+    @Test
+    public void testUniqueName5() {
+        ArrayList<String> existingNames = new ArrayList<>();
+        existingNames.add("axb");
+        assertEquals("a.b (2)", PhotoManager.uniqueName("a.b", existingNames));
+    }
+
     String dir = System.getProperty("user.dir");
     String test = dir + "/TestPhotoManager";
-    Path path = Paths.get(test);
-    PhotoManager pm = new PhotoManager(path);
+    Path path;
+    PhotoManager pm;
+
+    @Override
+    protected void setUp() throws Exception {
+        // Works on a copy, since opening and changing a PhotoManager writes to its directory
+        path = TempDirectories.copyOf(Paths.get(test));
+        pm = new PhotoManager(path);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        pm.flush();
+        TempDirectories.delete(path);
+    }
 
     @Test
     public void testGetPath() throws Exception {
@@ -74,6 +112,204 @@ public class PhotoManagerTest extends TestCase {
         assertFalse(pm.getTagMaster().contains("test1"));
     }
 
+    @Test
+    public void testEvents() throws Exception {
+        ArrayList<PhotoEvent.FavouriteChanged> changes = new ArrayList<>();
+        ArrayList<PhotoEvent.TagAdded> added = new ArrayList<>();
+        pm.getEvents().subscribe(PhotoEvent.FavouriteChanged.class, changes::addAll);
+        pm.getEvents().subscribe(PhotoEvent.TagAdded.class, added::addAll);
+        Photo p = pm.getPhotoMaster().get(0);
+        pm.setFavourite(p, true);
+        pm.setFavourite(p, true);
+        assertEquals(1, changes.size());
+        assertSame(p, changes.get(0).getPhoto());
+        assertTrue(changes.get(0).isFavourite());
+        assertTrue(added.isEmpty());
+        pm.setFavourite(p, false);
+    }
+
+    @Test
+    public void testCoalesce() throws Exception {
+        Photo p = pm.getPhotoMaster().get(0);
+        List<PhotoEvent> events = EventBus.coalesce(Arrays.asList(
+                new PhotoEvent.PhotoRenamed(p, "a", "b"),
+                new PhotoEvent.TagAdded("t", null),
+                new PhotoEvent.PhotoRenamed(p, "b", "c")));
+        assertEquals(2, events.size());
+        assertTrue(events.get(0) instanceof PhotoEvent.TagAdded);
+        assertEquals("a", ((PhotoEvent.PhotoRenamed) events.get(1)).getOldName());
+        assertEquals("c", ((PhotoEvent.PhotoRenamed) events.get(1)).getNewName());
+    }
+
+    @Test
+    public void testSortOrder() throws Exception {
+        ArrayList<Photo> byName = pm.getSortedPhotos();
+        assertEquals(2, byName.size());
+        assertTrue(byName.get(0).toString().compareTo(byName.get(1).toString()) < 0);
+
+        // A Photo gaining a tag moves after the Photo with fewer tags
+        Photo first = byName.get(0);
+        pm.setSortOrder(PhotoOrder.TAG_COUNT);
+        pm.addTag("sortTest", first);
+        assertSame(first, pm.getSortedPhotos().get(1));
+        assertTrue(pm.getSortComparator().compare(byName.get(1), first) < 0);
+
+        pm.removeTag("sortTest");
+        assertSame(first, pm.getSortedPhotos().get(0));
+        pm.setSortOrder(PhotoOrder.NAME);
+        assertEquals(byName, pm.getSortedPhotos());
+    }
+
+    @Test
+    public void testSortKeys() throws Exception {
+        Photo first = pm.getSortedPhotos().get(0);
+        SortKey old = pm.getSortKey(first);
+        assertSame(first, old.getPhoto());
+        assertSame(old, pm.getSortKeys().get(0));
+
+        // The old key still compares as the Photo was placed, while the new one follows the other Photo
+        pm.setSortOrder(PhotoOrder.TAG_COUNT);
+        old = pm.getSortKey(first);
+        pm.addTag("sortTest", first);
+        SortKey key = pm.getSortKey(first);
+        ArrayList<SortKey> keys = pm.getSortKeys();
+        assertSame(key, keys.get(1));
+        assertTrue(old.compareTo(keys.get(0)) <= 0);
+        assertTrue(keys.get(0).compareTo(key) < 0);
+        pm.removeTag("sortTest");
+    }
+
+    @Test
+    public void testApplyTagChanges() throws Exception {
+        ArrayList<PhotoEvent.PhotoRenamed> renames = new ArrayList<>();
+        pm.getEvents().subscribe(PhotoEvent.PhotoRenamed.class, renames::addAll);
+        ArrayList<Photo> photos = pm.getPhotoMaster();
+        pm.applyTagChanges(photos, new LinkedHashSet<>(Arrays.asList("bulk1", "bulk2")), new HashSet<>());
+        for (Photo p : photos) {
+            assertTrue(p.toString().endsWith("@bulk1 @bulk2"));
+            assertTrue(p.getPath().getFileName().toString().contains("@bulk1 @bulk2."));
+        }
+        assertEquals(photos.size(), renames.size());   // one rename for both tags
+        assertEquals(photos.size(), pm.tagUsageCount("bulk2"));
+
+        pm.applyTagChanges(photos, new HashSet<>(), new HashSet<>(Arrays.asList("bulk1", "bulk2")));
+        for (Photo p : photos) {
+            assertFalse(p.hasTag("bulk1") || p.hasTag("bulk2"));
+        }
+        assertEquals(0, pm.tagUsageCount("bulk1"));
+        pm.removeTag("bulk1");
+        pm.removeTag("bulk2");
+
+        try {
+            pm.applyTagChanges(photos, new HashSet<>(Arrays.asList("fine", "bad?")), new HashSet<>());
+            fail();
+        } catch (IOException e) {
+            assertFalse(pm.getTagMaster().contains("fine"));
+        }
+    }
+
+    @Test
+    public void testApplyTagChangesAllFailed() throws Exception {
+        Photo photo = pm.getPhotoMaster().get(0);
+        Files.move(photo.getPath(), photo.getPath().resolveSibling("elsewhere.jpg"));
+        try {
+            pm.applyTagChanges(Collections.singletonList(photo), new HashSet<>(Arrays.asList("unused")),
+                    new HashSet<>());
+            fail();
+        } catch (IOException e) {
+            assertFalse(pm.getTagMaster().contains("unused"));
+        }
+    }
+
+    @Test
+    public void testBulkJob() throws Exception {
+        ArrayList<List<PhotoEvent.PhotoRenamed>> batches = new ArrayList<>();
+        pm.getEvents().subscribe(PhotoEvent.PhotoRenamed.class, batches::add);
+        ArrayList<Photo> photos = pm.getPhotoMaster();
+        BulkJob job = pm.startTagChanges(photos, new HashSet<>(Arrays.asList("job")), new HashSet<>());
+        job.await();
+        assertNull(job.getFailure());
+        assertEquals(photos.size(), job.getPhotosDone());
+        assertEquals(1, batches.size());    // the whole job is delivered at once
+        assertEquals(photos.size(), batches.get(0).size());
+
+        job = pm.startTagChanges(photos, new HashSet<>(), new HashSet<>(Arrays.asList("job")));
+        job.await();
+        assertEquals(0, pm.tagUsageCount("job"));
+        pm.removeTag("job");
+
+        try {
+            pm.startTagChanges(photos, new HashSet<>(Arrays.asList("bad?")), new HashSet<>());
+            fail();
+        } catch (IOException e) {
+            // not started
+        }
+    }
+
+    @Test
+    public void testRelocate() throws Exception {
+        Path root = Files.createTempDirectory("PhotoManagerTest");
+        Path outside = Files.createTempDirectory("PhotoManagerTest");
+        try {
+            relocate(root, outside);
+        } finally {
+            TempDirectories.delete(root);
+            TempDirectories.delete(outside);
+        }
+    }
+
+    /**
+     * Moves photos in root by their first tag, then out to outside, checking the summary of each move.
+     */
+    private void relocate(Path root, Path outside) throws Exception {
+        Files.createFile(root.resolve("a @sea.jpg"));
+        Files.createFile(root.resolve("b @sea @sun.jpg"));
+        Files.createFile(root.resolve("c.jpg"));
+        Files.createFile(outside.resolve("c.jpg"));     // already taken, so c cannot be moved out
+        PhotoManager relocating = new PhotoManager(root);
+
+        RelocateJob job = relocating.startRelocate(relocating.getPhotoMaster(), root, RelocateRule.BY_FIRST_TAG);
+        job.await();
+        assertNull(job.getFailure());
+        assertEquals(2, job.getMovedCount());
+        assertEquals(1, job.getAlreadyInPlaceCount());
+        assertTrue(Files.exists(root.resolve("sea").resolve("b @sea @sun.jpg")));
+        assertEquals(3, relocating.getPhotoMaster().size());
+
+        job = relocating.startRelocate(relocating.getPhotoMaster(), outside, RelocateRule.DIRECTORY);
+        job.await();
+        assertNotNull(job.getFailure());
+        assertEquals(2, job.getLeftLibraryCount());
+        assertEquals(1, job.getFailures().size());
+        assertEquals(1, relocating.getPhotoMaster().size());
+        assertEquals(0, relocating.tagUsageCount("sea"));
+        assertFalse(relocating.getTagMaster().contains("sun"));   // used only by a photo which left
+        assertTrue(job.getSummary().startsWith("Moved 2 photos into 1 directory, 2 out of the library"));
+        relocating.flush();
+    }
+
+    @Test
+    public void testStartLoading() throws Exception {
+        PhotoManager loaded = new PhotoManager(path, false);
+        assertTrue(loaded.getPhotoMaster().isEmpty());
+        DirectoryLoad load = loaded.startLoading();
+        load.await();
+        assertNull(load.getFailure());
+        assertEquals(pm.getSortedPhotos().toString(), loaded.getSortedPhotos().toString());
+        assertEquals(2, load.getPhotosLoaded());
+        assertEquals(1, load.getDirectoriesScanned());
+    }
+
+    @Test
+    public void testCancelLoading() throws Exception {
+        PhotoManager loaded = new PhotoManager(path, false);
+        DirectoryLoad load = loaded.startLoading();
+        load.cancel();
+        load.await();
+        assertTrue(load.isCancelled());
+        assertTrue(loaded.getPhotoMaster().size() <= 2);
+    }
+
     @Test
     public void testFavPhoto() throws Exception {
         Photo p = pm.getPhotoMaster().get(0);
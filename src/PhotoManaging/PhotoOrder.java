@@ -0,0 +1,52 @@
+package PhotoManaging;
+
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * A PhotoOrder which a PhotoManager can keep its Photos sorted in.
+ * <p>
+ * Photos which are equal in the order, such as two Photos of the same size, are ordered by name.
+ */
+public enum PhotoOrder {
+    NAME("Name"),
+    MODIFIED("Date modified"),
+    SIZE("Size"),
+    TAG_COUNT("Number of tags");
+
+    /* The name of this PhotoOrder shown to the user */
+    private final String description;
+
+    PhotoOrder(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Returns the number photo is sorted by in this order before its name, or 0 if it is sorted by name alone.
+     * The modification time and size are read from photo's file, counting as 0 if the file cannot be read.
+     *
+     * @param photo the Photo to sort
+     * @return the number photo is sorted by
+     */
+    long sortNumber(Photo photo) {
+        try {
+            switch (this) {
+                case MODIFIED:
+                    return Files.getLastModifiedTime(photo.getPath()).toMillis();
+                case SIZE:
+                    return Files.size(photo.getPath());
+                case TAG_COUNT:
+                    return photo.getTags().size();
+                default:
+                    return 0;
+            }
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
@@ -4,6 +4,7 @@ package PhotoManaging;
 import junit.framework.TestCase;
 import org.junit.Test;
 
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
@@ -149,13 +150,39 @@ public class PhotoTest extends TestCase {
     }
 
     String dir = System.getProperty("user.dir");
-    String test = dir + "/TestPhoto/photo4.jpg";
-    Path path = Paths.get(test);
-    Photo p = new Photo(path, "photo4");
+    String test = dir + "/TestPhoto";
+    Path directory;
+    Path path;
+    Photo p;
+
+    @Override
+    protected void setUp() throws Exception {
+        // Works on a copy, since a Photo writes its name history to its directory
+        directory = TempDirectories.copyOf(Paths.get(test));
+        path = directory.resolve("photo4.jpg");
+        p = new Photo(path, "photo4");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TempDirectories.delete(directory);
+    }
 
     @Test
     public void testAddTag() throws Exception {
         p.addTag("test1");
         assertTrue(p.getTags().contains("test1"));
     }
+
+    @Test
+    public void testRenameWithoutHistory() throws Exception {
+        // A directory in place of the log, so the name history of unlogged cannot be opened
+        Path unlogged = Files.createDirectory(directory.resolve("unlogged"));
+        Files.createDirectory(unlogged.resolve(NameHistoryStore.JOURNAL_NAME));
+        Path file = Files.write(unlogged.resolve("a.jpg"), new byte[]{1});
+        Photo photo = new Photo(file, "a");
+        photo.addTag("t");
+        assertEquals("a @t", photo.toString());
+        assertTrue(Files.exists(unlogged.resolve("a @t.jpg")));
+    }
 }
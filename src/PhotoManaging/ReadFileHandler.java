@@ -1,8 +1,14 @@
 package PhotoManaging;
 
+import java.io.IOException;
+import java.nio.charset.Charset;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Locale;
 import java.util.stream.Stream;
 
 
@@ -27,57 +33,63 @@ class ReadFileHandler {
         if (isTag) {
             filePath = path.toString() + "/" + "TagsList.txt";
             if (Files.exists(Paths.get(filePath))) {
-                Stream<String> inputTags = Files.lines(Paths.get(filePath));
-                inputTags.forEach((inputTag) -> {
-                    try {
-                        pm.addTag(inputTag);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                });
+                try (Stream<String> inputTags = Files.lines(Paths.get(filePath))) {
+                    inputTags.forEach((inputTag) -> {
+                        try {
+                            pm.addTag(inputTag);
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                        }
+                    });
+                }
             }
         }
         // if the text file is favList.txt
         else {
             filePath = path.toString() + "/" + "FavList.txt";
             if (Files.exists(Paths.get(filePath))) {
-                Stream<String> inputNames = Files.lines(Paths.get(filePath));
-                inputNames.forEach((inputName) -> {
-                    try {
-                        pm.getFavPhotosNames().add(inputName);
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                });
+                try (Stream<String> inputNames = Files.lines(Paths.get(filePath))) {
+                    inputNames.forEach((inputName) -> {
+                        try {
+                            pm.addFavPhotoName(inputName);
+                        } catch (Exception e) {
+                            e.printStackTrace();
+                        }
+                    });
+                }
             }
         }
     }
 
     /**
-     * Finds the NameHistory.txt file located at path (if it exists)
-     * and adds all entries involving p to its nameHistory
+     * Reads every logged name change from a NameHistory.txt file written before NameHistory.log was introduced,
+     * where each change is of the form "old --> new [date]" followed by a blank line
      *
-     * @param path where the method should read existing names from, if possible
-     * @param p    Photo that takes information from the text file and adds it to the nameHistory of p
-     * @throws Exception if a Stream cannot be constructed from NameHistory.txt
+     * @param filePath the NameHistory.txt file to read
+     * @return the name changes in the order they were logged, dated 0 if their date cannot be read
+     * @throws IOException if NameHistory.txt cannot be read
      */
-    static void readNameHistory(Path path, Photo p) throws Exception {
-        if (Files.exists(Paths.get(path.getParent().toString() + "/" + "NameHistory.txt"))) {
-            Stream<String> inputNames = Files.lines(Paths.get(path.getParent().toString() + "/" +
-                    "NameHistory.txt"));
+    static ArrayList<NameHistoryStore.Record> readNameHistory(Path filePath) throws IOException {
+        ArrayList<NameHistoryStore.Record> records = new ArrayList<>();
+        // The entries were written by java.util.logging in the platform's encoding, with dates from Date.toString
+        SimpleDateFormat dateFormat = new SimpleDateFormat("EEE MMM dd HH:mm:ss zzz yyyy", Locale.US);
+        try (Stream<String> inputNames = Files.lines(filePath, Charset.defaultCharset())) {
             inputNames.forEach((inputName) -> {
-                if (inputName.length() > 1) {
-                    String baseName;
-                    if (p.toString().contains("@")) baseName = p.toString().substring(0, p.toString().indexOf(" @"));
-                    else {
-                        baseName = p.toString();
+                int arrow = inputName.indexOf(" --> ");
+                int date = inputName.lastIndexOf(" [");
+                if (arrow > 0 && date > arrow && inputName.endsWith("]")) {
+                    String newName = inputName.substring(arrow + 5, date);
+                    long millis;
+                    try {
+                        millis = dateFormat.parse(inputName.substring(date + 2, inputName.length() - 1)).getTime();
+                    } catch (ParseException e) {
+                        millis = 0;
                     }
-                    if (inputName.contains(baseName) &&
-                            !p.getNameHistory().contains(inputName.substring(0, inputName.indexOf(" -->"))))
-                        p.getNameHistory().add(inputName.substring(0, inputName.indexOf(" -->")));
+                    records.add(new NameHistoryStore.Record(Photo.baseName(newName), millis,
+                            inputName.substring(0, arrow), newName));
                 }
             });
         }
-        if (!p.getNameHistory().contains(p.toString())) p.getNameHistory().add(p.toString());
+        return records;
     }
 }
@@ -0,0 +1,149 @@
+package PhotoManaging;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * A RegistryWriter which keeps a text file such as TagsList.txt or FavList.txt in step with a PhotoManager.
+ * <p>
+ * Changes only mark the file dirty. The file is rewritten once, a short delay after the first change, when flush is
+ * called, or when the program exits, so a burst of changes costs a single write. Each rewrite goes to a temporary
+ * file which then replaces the original, so the file is never left half written.
+ */
+class RegistryWriter {
+
+    /* How long after the first unsaved change the file is rewritten */
+    static final long FLUSH_DELAY_MILLIS = 500;
+
+    /* The thread on which delayed rewrites are performed */
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "Registry writer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /* Every RegistryWriter with unsaved changes, rewritten when the program exits */
+    private static final LinkedHashSet<RegistryWriter> DIRTY = new LinkedHashSet<>();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(RegistryWriter::flushAll, "Registry writer shutdown"));
+    }
+
+    /* The file to keep up to date */
+    private final Path file;
+
+    /* The object to hold while lines is read, so the contents are not changed mid-write */
+    private final Object lock;
+
+    /* Produces the current contents of the file, one element per line */
+    private final Supplier<? extends Iterable<?>> lines;
+
+    /* Held while the file is written, so that an older snapshot never overwrites a newer one */
+    private final Object writeLock = new Object();
+
+    /* True if the file is out of date */
+    private boolean dirty;
+
+    /* The scheduled rewrite, or null if none is pending */
+    private ScheduledFuture<?> pending;
+
+    /**
+     * Initialize a RegistryWriter for file.
+     *
+     * @param file  see above instance parameter
+     * @param lock  see above instance parameter
+     * @param lines see above instance parameter
+     */
+    RegistryWriter(Path file, Object lock, Supplier<? extends Iterable<?>> lines) {
+        this.file = file;
+        this.lock = lock;
+        this.lines = lines;
+    }
+
+    /**
+     * Records that the contents of the file have changed, scheduling a rewrite if one is not already pending.
+     */
+    synchronized void markDirty() {
+        dirty = true;
+        synchronized (DIRTY) {
+            DIRTY.add(this);
+        }
+        if (pending == null) {
+            pending = SCHEDULER.schedule(this::flushQuietly, FLUSH_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Rewrites the file now if it has unsaved changes.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    void flush() throws IOException {
+        synchronized (writeLock) {
+            synchronized (this) {
+                if (!dirty) return;
+                dirty = false;
+                if (pending != null) pending.cancel(false);
+                pending = null;
+            }
+            synchronized (DIRTY) {
+                DIRTY.remove(this);
+            }
+
+            StringBuilder newWrite = new StringBuilder();
+            synchronized (lock) {
+                for (Object line : lines.get()) {
+                    newWrite.append(line).append(System.lineSeparator());
+                }
+            }
+
+            try {
+                Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+                Files.write(temp, newWrite.toString().getBytes(StandardCharsets.UTF_8));
+                try {
+                    Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } catch (IOException e) {
+                markDirty();    // try again later rather than losing the change
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Rewrites the file if it has unsaved changes, reporting rather than throwing any error.
+     */
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Rewrites every file with unsaved changes.
+     */
+    private static void flushAll() {
+        ArrayList<RegistryWriter> dirty;
+        synchronized (DIRTY) {
+            dirty = new ArrayList<>(DIRTY);
+        }
+        for (RegistryWriter writer : dirty) {
+            writer.flushQuietly();
+        }
+    }
+}
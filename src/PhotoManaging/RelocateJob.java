@@ -0,0 +1,116 @@
+package PhotoManaging;
+
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A RelocateJob which follows many Photos being moved at once by a PhotoManager, and keeps the summary of the whole
+ * operation: how many Photos were moved into each directory, how many left the PhotoManager, how many were already in
+ * place and why any could not be moved.
+ */
+public class RelocateJob extends BulkJob {
+
+    /* The number of Photos moved into each directory, in the order the directories were first moved into */
+    private final LinkedHashMap<Path, Integer> movedInto = new LinkedHashMap<>();
+
+    /* The number of Photos moved outside the root, which have left the PhotoManager */
+    private int leftLibrary;
+
+    /* The number of Photos already in the directory they were to be moved into */
+    private int alreadyInPlace;
+
+    /* The reason each Photo which could not be moved was not, by the file it is still in */
+    private final LinkedHashMap<Path, Exception> failures = new LinkedHashMap<>();
+
+    /**
+     * Initialize a new RelocateJob.
+     *
+     * @param description what the job does, such as "Moving"
+     * @param photoCount  the number of Photos the job moves
+     */
+    RelocateJob(String description, int photoCount) {
+        super(description, photoCount);
+    }
+
+    /**
+     * @return the number of Photos moved so far
+     */
+    public synchronized int getMovedCount() {
+        int moved = 0;
+        for (int count : movedInto.values()) {
+            moved += count;
+        }
+        return moved;
+    }
+
+    /**
+     * @return the number of Photos moved so far into each directory
+     */
+    public synchronized Map<Path, Integer> getMovedInto() {
+        return new LinkedHashMap<>(movedInto);
+    }
+
+    /**
+     * @return the number of Photos moved outside the root so far, which have left the PhotoManager
+     */
+    public synchronized int getLeftLibraryCount() {
+        return leftLibrary;
+    }
+
+    /**
+     * @return the number of Photos found already in the directory they were to be moved into
+     */
+    public synchronized int getAlreadyInPlaceCount() {
+        return alreadyInPlace;
+    }
+
+    /**
+     * @return the reason each Photo which could not be moved was not, by the file it is still in
+     */
+    public synchronized Map<Path, Exception> getFailures() {
+        return new LinkedHashMap<>(failures);
+    }
+
+    /**
+     * Returns one line summing up the moves made so far, such as
+     * "Moved 120 photos into 3 directories, 4 out of the library, 1.5 MB copied at 2.0 MB/s; 2 could not be moved".
+     *
+     * @return the summary of the job
+     */
+    public synchronized String getSummary() {
+        int moved = getMovedCount();
+        StringBuilder summary = new StringBuilder(String.format("Moved %,d photo%s into %,d director%s", moved,
+                moved == 1 ? "" : "s", movedInto.size(), movedInto.size() == 1 ? "y" : "ies"));
+        if (leftLibrary > 0) summary.append(String.format(", %,d out of the library", leftLibrary));
+        if (getBytesMoved() > 0) {
+            summary.append(String.format(", %,.1f MB copied at %,.1f MB/s", getBytesMoved() / 1e6,
+                    getBytesPerSecond() / 1e6));
+        }
+        if (alreadyInPlace > 0) summary.append(String.format("; %,d already in place", alreadyInPlace));
+        if (!failures.isEmpty()) summary.append(String.format("; %,d could not be moved", failures.size()));
+        return summary.toString();
+    }
+
+    /**
+     * Records that a Photo was moved into directory, leaving the PhotoManager if left is true.
+     */
+    synchronized void moved(Path directory, boolean left) {
+        movedInto.merge(directory, 1, Integer::sum);
+        if (left) leftLibrary++;
+    }
+
+    /**
+     * Records that a Photo was already in the directory it was to be moved into.
+     */
+    synchronized void alreadyInPlace() {
+        alreadyInPlace++;
+    }
+
+    /**
+     * Records that the Photo in file could not be moved because of failure.
+     */
+    synchronized void failed(Path file, Exception failure) {
+        failures.put(file, failure);
+    }
+}
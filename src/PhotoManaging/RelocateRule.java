@@ -0,0 +1,55 @@
+package PhotoManaging;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneId;
+
+/**
+ * A RelocateRule which chooses the directory each Photo is moved into when many Photos are moved at once.
+ * <p>
+ * Photos the rule has nothing to go by for, such as a Photo without tags moved by its first tag, are moved into the
+ * chosen directory itself.
+ */
+public enum RelocateRule {
+    DIRECTORY("Into the directory"),
+    BY_FIRST_TAG("Into a directory for the first tag"),
+    BY_YEAR("Into a directory for the year modified");
+
+    /* The name of this RelocateRule shown to the user */
+    private final String description;
+
+    RelocateRule(String description) {
+        this.description = description;
+    }
+
+    /**
+     * Returns the directory photo is moved into by this rule, within directory. The year is the one photo's file was
+     * last modified in, which is the date a photo is sorted by.
+     *
+     * @param photo     the Photo to move
+     * @param directory the directory chosen by the user
+     * @return the directory to move photo's file into
+     */
+    Path directoryFor(Photo photo, Path directory) {
+        switch (this) {
+            case BY_FIRST_TAG:
+                return photo.getTags().isEmpty() ? directory : directory.resolve(photo.getTags().get(0));
+            case BY_YEAR:
+                try {
+                    Instant modified = Files.getLastModifiedTime(photo.getPath()).toInstant();
+                    return directory.resolve(String.valueOf(modified.atZone(ZoneId.systemDefault()).getYear()));
+                } catch (IOException e) {
+                    return directory;
+                }
+            default:
+                return directory;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+}
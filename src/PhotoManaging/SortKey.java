@@ -0,0 +1,44 @@
+package PhotoManaging;
+
+/**
+ * A SortKey which is the place of a Photo in a PhotoOrder, as the Photo was when the SortKey was made.
+ * <p>
+ * Keys stay the same when their Photo changes, so a list sorted by the keys its Photos were placed with stays sorted,
+ * and the place of a changed Photo can still be found in it by binary search under its old key.
+ */
+public final class SortKey implements Comparable<SortKey> {
+
+    /* The Photo this SortKey places */
+    private final Photo photo;
+
+    /* The number the Photo is sorted by first, such as its size, in the PhotoOrder */
+    private final long number;
+
+    /* The name the Photo is sorted by when the numbers are equal */
+    private final String name;
+
+    /**
+     * Initialize a new SortKey for where photo now falls in order.
+     *
+     * @param photo the Photo to place
+     * @param order the order to place it in
+     */
+    SortKey(Photo photo, PhotoOrder order) {
+        this.photo = photo;
+        this.number = order.sortNumber(photo);
+        this.name = photo.toString();
+    }
+
+    /**
+     * @return the Photo this SortKey places
+     */
+    public Photo getPhoto() {
+        return photo;
+    }
+
+    @Override
+    public int compareTo(SortKey other) {
+        int result = Long.compare(number, other.number);
+        return result != 0 ? result : name.compareTo(other.name);
+    }
+}
@@ -0,0 +1,215 @@
+package PhotoManaging;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * A SortedPhotos which keeps Photos sorted in a PhotoOrder as they are added, renamed and removed.
+ * <p>
+ * Each Photo is held with the key it was last sorted by, so after a rename its old place is found by binary search
+ * under the old key and it is moved to the place of its new key, without sorting the other Photos again.
+ * Photos added are held back and merged in together when the order is next needed, so loading many Photos costs one
+ * sort of the new Photos and one merge rather than a move of the whole list for each.
+ */
+class SortedPhotos {
+
+    /* The order the Photos are kept in */
+    private PhotoOrder order;
+
+    /* The key of every Photo, sorted */
+    private final ArrayList<SortKey> sorted = new ArrayList<>();
+
+    /* The keys of the Photos added since sorted was last merged, not yet in order */
+    private final ArrayList<SortKey> added = new ArrayList<>();
+
+    /* The key each Photo was last sorted by */
+    private final IdentityHashMap<Photo, SortKey> keys = new IdentityHashMap<>();
+
+    /**
+     * Initialize a new, empty SortedPhotos.
+     *
+     * @param order the order to keep Photos in
+     */
+    SortedPhotos(PhotoOrder order) {
+        this.order = order;
+    }
+
+    /**
+     * Adds photo, if it is not already present. It is put in its place when the order is next needed.
+     *
+     * @param photo the Photo to add
+     */
+    void add(Photo photo) {
+        if (keys.containsKey(photo)) return;
+        SortKey key = new SortKey(photo, order);
+        keys.put(photo, key);
+        added.add(key);
+    }
+
+    /**
+     * Removes photo, if it is present.
+     *
+     * @param photo the Photo to remove
+     */
+    void remove(Photo photo) {
+        SortKey key = keys.remove(photo);
+        if (key != null) {
+            merge();
+            sorted.remove(indexOf(key));
+        }
+    }
+
+    /**
+     * Removes each of photos that is present, in one pass over the sorted Photos rather than one per Photo.
+     *
+     * @param photos the Photos to remove
+     */
+    void removeAll(Collection<Photo> photos) {
+        Set<SortKey> removed = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Photo photo : photos) {
+            SortKey key = keys.remove(photo);
+            if (key != null) removed.add(key);
+        }
+        if (!removed.isEmpty()) {
+            merge();
+            sorted.removeIf(removed::contains);
+        }
+    }
+
+    /**
+     * Moves photo to its place after a change to its name, tags or file.
+     *
+     * @param photo the Photo that changed
+     */
+    void update(Photo photo) {
+        SortKey old = keys.get(photo);
+        if (old == null) return;
+        SortKey key = new SortKey(photo, order);
+        if (key.compareTo(old) == 0) return;
+        merge();
+        sorted.remove(indexOf(old));
+        keys.put(photo, key);
+        sorted.add(insertionPoint(key), key);
+    }
+
+    /**
+     * Sorts every Photo into order.
+     *
+     * @param order the order to keep Photos in from now on
+     */
+    void setOrder(PhotoOrder order) {
+        this.order = order;
+        sorted.clear();
+        added.clear();
+        for (Photo photo : keys.keySet()) {
+            SortKey key = new SortKey(photo, order);
+            keys.put(photo, key);
+            sorted.add(key);
+        }
+        Collections.sort(sorted);
+    }
+
+    /**
+     * @return the order the Photos are kept in
+     */
+    PhotoOrder getOrder() {
+        return order;
+    }
+
+    /**
+     * @return a copy of the Photos, in order
+     */
+    ArrayList<Photo> photos() {
+        merge();
+        ArrayList<Photo> photos = new ArrayList<>(sorted.size());
+        for (SortKey key : sorted) {
+            photos.add(key.getPhoto());
+        }
+        return photos;
+    }
+
+    /**
+     * @return a copy of the keys of the Photos, in order
+     */
+    ArrayList<SortKey> keys() {
+        merge();
+        return new ArrayList<>(sorted);
+    }
+
+    /**
+     * Compares two Photos by the keys they were last sorted by, so Photos compare the same as their places here.
+     * A Photo which is not present is compared by its current key.
+     *
+     * @return a negative number, zero or a positive number as a comes before, with or after b
+     */
+    int compare(Photo a, Photo b) {
+        return keyOf(a).compareTo(keyOf(b));
+    }
+
+    /**
+     * Sorts the keys added since the last merge, then merges them into sorted in one pass.
+     */
+    private void merge() {
+        if (added.isEmpty()) return;
+        Collections.sort(added);
+        ArrayList<SortKey> merged = new ArrayList<>(sorted.size() + added.size());
+        int i = 0;
+        int j = 0;
+        while (i < sorted.size() || j < added.size()) {
+            // Equal keys keep the Photo already in place first, as insertionPoint does
+            if (j == added.size() || (i < sorted.size() && sorted.get(i).compareTo(added.get(j)) <= 0)) {
+                merged.add(sorted.get(i++));
+            } else {
+                merged.add(added.get(j++));
+            }
+        }
+        sorted.clear();
+        sorted.addAll(merged);
+        added.clear();
+    }
+
+    /**
+     * @return the key photo was last sorted by, or its current key if it is not present
+     */
+    SortKey keyOf(Photo photo) {
+        SortKey key = keys.get(photo);
+        return key == null ? new SortKey(photo, order) : key;
+    }
+
+    /**
+     * @return the index of key in sorted, which must be present
+     */
+    private int indexOf(SortKey key) {
+        int index = Collections.binarySearch(sorted, key);
+        if (index >= 0 && sorted.get(index) == key) return index;
+        // Another Photo has an equal key, so look either side of it
+        index = Math.max(index, 0);
+        for (int i = index; i < sorted.size() && sorted.get(i).compareTo(key) == 0; i++) {
+            if (sorted.get(i) == key) return i;
+        }
+        for (int i = index - 1; i >= 0 && sorted.get(i).compareTo(key) == 0; i--) {
+            if (sorted.get(i) == key) return i;
+        }
+        return sorted.indexOf(key);
+    }
+
+    /**
+     * @return the index in sorted to insert key at, after any equal keys
+     */
+    private int insertionPoint(SortKey key) {
+        int low = 0;
+        int high = sorted.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sorted.get(middle).compareTo(key) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
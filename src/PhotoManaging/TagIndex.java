@@ -0,0 +1,177 @@
+package PhotoManaging;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+
+/**
+ * A TagIndex which maps each tag to the Photos currently carrying it,
+ * so PhotoManager can find the users of a tag without visiting every Photo.
+ * <p>
+ * Every Photo in the index is given a small integer ordinal, and the Photos carrying each tag are kept as a
+ * PhotoBitmap of ordinals so that TagQuery can combine them with fast set operations.
+ * <p>
+ * A TagIndex is not thread-safe. PhotoManager reads and changes it only while holding its own lock.
+ */
+class TagIndex {
+
+    /* The Photo holding each ordinal, or null if the ordinal is free */
+    private final ArrayList<Photo> photosByOrdinal = new ArrayList<>();
+
+    /* The ordinal held by each Photo in the index */
+    private final IdentityHashMap<Photo, Integer> ordinals = new IdentityHashMap<>();
+
+    /* The ordinals released by removed Photos, reused before new ones are handed out */
+    private final ArrayDeque<Integer> freeOrdinals = new ArrayDeque<>();
+
+    /* The ordinals of every Photo in the index */
+    private final PhotoBitmap allPhotos = new PhotoBitmap();
+
+    /* The ordinals of the Photos carrying each tag */
+    private final HashMap<String, PhotoBitmap> photosByTag = new HashMap<>();
+
+    /**
+     * Gives photo an ordinal and records every tag it currently carries.
+     *
+     * @param photo the Photo entering the index
+     */
+    void addPhoto(Photo photo) {
+        if (ordinals.containsKey(photo)) return;
+        int ordinal;
+        if (freeOrdinals.isEmpty()) {
+            ordinal = photosByOrdinal.size();
+            photosByOrdinal.add(photo);
+        } else {
+            ordinal = freeOrdinals.pop();
+            photosByOrdinal.set(ordinal, photo);
+        }
+        ordinals.put(photo, ordinal);
+        allPhotos.add(ordinal);
+        addAll(photo);
+    }
+
+    /**
+     * Forgets every tag photo carries and releases its ordinal.
+     *
+     * @param photo the Photo leaving the index
+     */
+    void removePhoto(Photo photo) {
+        removeAll(photo);
+        Integer ordinal = ordinals.remove(photo);
+        if (ordinal != null) {
+            allPhotos.remove(ordinal);
+            photosByOrdinal.set(ordinal, null);
+            freeOrdinals.push(ordinal);
+        }
+    }
+
+    /**
+     * Returns true if photo has an ordinal in the index.
+     *
+     * @param photo the Photo to look for
+     * @return whether photo is in the index
+     */
+    boolean contains(Photo photo) {
+        return ordinals.containsKey(photo);
+    }
+
+    /**
+     * Records that photo carries tag.
+     *
+     * @param tag   the tag carried by photo
+     * @param photo the Photo carrying tag
+     */
+    void add(String tag, Photo photo) {
+        Integer ordinal = ordinals.get(photo);
+        if (ordinal != null) photosByTag.computeIfAbsent(tag, t -> new PhotoBitmap()).add(ordinal);
+    }
+
+    /**
+     * Records every tag currently carried by photo.
+     *
+     * @param photo the Photo whose tags are recorded
+     */
+    void addAll(Photo photo) {
+        for (String tag : photo.getTags()) {
+            add(tag, photo);
+        }
+    }
+
+    /**
+     * Records that photo no longer carries tag.
+     *
+     * @param tag   the tag removed from photo
+     * @param photo the Photo that carried tag
+     */
+    void remove(String tag, Photo photo) {
+        Integer ordinal = ordinals.get(photo);
+        PhotoBitmap photos = photosByTag.get(tag);
+        if (ordinal != null && photos != null) {
+            photos.remove(ordinal);
+            if (photos.isEmpty()) photosByTag.remove(tag);
+        }
+    }
+
+    /**
+     * Records that photo no longer carries any of its current tags.
+     *
+     * @param photo the Photo whose tags are forgotten
+     */
+    void removeAll(Photo photo) {
+        for (String tag : photo.getTags()) {
+            remove(tag, photo);
+        }
+    }
+
+    /**
+     * Returns the Photos carrying tag.
+     *
+     * @param tag the tag to look up
+     * @return the Photos carrying tag in ordinal order, empty if no Photo carries it
+     */
+    ArrayList<Photo> photos(String tag) {
+        PhotoBitmap photos = photosByTag.get(tag);
+        return photos == null ? new ArrayList<>() : toPhotos(photos);
+    }
+
+    /**
+     * Returns the number of Photos carrying tag.
+     *
+     * @param tag the tag to look up
+     * @return how many Photos carry tag
+     */
+    int count(String tag) {
+        PhotoBitmap photos = photosByTag.get(tag);
+        return photos == null ? 0 : photos.cardinality();
+    }
+
+    /**
+     * Returns true if any Photo carries tag.
+     *
+     * @param tag the tag to look up
+     * @return whether tag is in use
+     */
+    boolean isUsed(String tag) {
+        return photosByTag.containsKey(tag);
+    }
+
+    /**
+     * Returns the Photos matching query.
+     *
+     * @param query the parsed query to evaluate
+     * @return the matching Photos in ordinal order
+     */
+    ArrayList<Photo> query(TagQuery query) {
+        return toPhotos(query.evaluate(photosByTag::get, allPhotos));
+    }
+
+    /**
+     * @return the Photos holding the ordinals in bitmap, in ordinal order
+     */
+    private ArrayList<Photo> toPhotos(PhotoBitmap bitmap) {
+        ArrayList<Photo> photos = new ArrayList<>(bitmap.cardinality());
+        bitmap.forEach(ordinal -> photos.add(photosByOrdinal.get(ordinal)));
+        return photos;
+    }
+}
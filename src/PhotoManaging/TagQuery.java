@@ -0,0 +1,191 @@
+package PhotoManaging;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.function.Function;
+
+/**
+ * A TagQuery which parses and evaluates a boolean expression over tags,
+ * such as {@code beach AND (2017 OR 2018) AND NOT blurry}.
+ * <p>
+ * The keywords AND, OR and NOT must be written in capitals, and NOT binds tighter than AND, which binds tighter
+ * than OR. Terms written next to each other without a keyword are joined with AND. A tag containing spaces,
+ * parentheses or a keyword can be written in double quotes, which can never appear in a tag.
+ */
+class TagQuery {
+
+    /* The root of the parsed expression */
+    private final Node root;
+
+    /* The tokens of the expression being parsed, and the position in the expression each token starts at */
+    private final ArrayList<String> tokens = new ArrayList<>();
+    private final ArrayList<Integer> offsets = new ArrayList<>();
+
+    /* The index in tokens of the next token to parse */
+    private int next;
+
+    /**
+     * Parses expression into a TagQuery.
+     *
+     * @param expression the query to parse
+     * @throws ParseException if expression is empty or not well formed
+     */
+    TagQuery(String expression) throws ParseException {
+        tokenize(expression);
+        if (tokens.isEmpty()) throw new ParseException("Empty query", 0);
+        root = parseOr();
+        if (next < tokens.size()) throw error("Unexpected \"" + tokens.get(next) + "\"");
+    }
+
+    /**
+     * Evaluates this TagQuery.
+     *
+     * @param photosWithTag the ordinals of the Photos carrying each tag, or null for a tag nobody carries
+     * @param allPhotos     the ordinals of every Photo, which NOT is taken relative to
+     * @return the ordinals of the Photos matching this TagQuery
+     */
+    PhotoBitmap evaluate(Function<String, PhotoBitmap> photosWithTag, PhotoBitmap allPhotos) {
+        return root.evaluate(tag -> {
+            PhotoBitmap photos = photosWithTag.apply(tag);
+            return photos == null ? new PhotoBitmap() : photos;
+        }, allPhotos);
+    }
+
+    /**
+     * Returns true if photo matches this TagQuery, without needing a TagIndex.
+     *
+     * @param photo the Photo to test
+     * @return whether the tags of photo satisfy this TagQuery
+     */
+    boolean matches(Photo photo) {
+        PhotoBitmap single = new PhotoBitmap();
+        single.add(0);
+        return !evaluate(tag -> photo.hasTag(tag) ? single : null, single).isEmpty();
+    }
+
+    /**
+     * A node of a parsed expression.
+     */
+    private interface Node {
+        PhotoBitmap evaluate(Function<String, PhotoBitmap> photosWithTag, PhotoBitmap allPhotos);
+    }
+
+    /**
+     * A node negating its operand.
+     */
+    private static class Not implements Node {
+        private final Node operand;
+
+        Not(Node operand) {
+            this.operand = operand;
+        }
+
+        @Override
+        public PhotoBitmap evaluate(Function<String, PhotoBitmap> photosWithTag, PhotoBitmap allPhotos) {
+            return allPhotos.andNot(operand.evaluate(photosWithTag, allPhotos));
+        }
+    }
+
+    /**
+     * orExpr := andExpr (OR andExpr)*
+     */
+    private Node parseOr() throws ParseException {
+        Node node = parseAnd();
+        while (peek("OR")) {
+            next++;
+            Node left = node;
+            Node right = parseAnd();
+            node = (photosWithTag, allPhotos) -> left.evaluate(photosWithTag, allPhotos)
+                    .or(right.evaluate(photosWithTag, allPhotos));
+        }
+        return node;
+    }
+
+    /**
+     * andExpr := notExpr ([AND] notExpr)*
+     */
+    private Node parseAnd() throws ParseException {
+        Node node = parseNot();
+        while (next < tokens.size() && !peek("OR") && !peek(")")) {
+            if (peek("AND")) next++;
+            Node left = node;
+            Node right = parseNot();
+            if (right instanceof Not) {
+                // "a AND NOT b" subtracts b from a directly instead of building the complement of b
+                Node subtracted = ((Not) right).operand;
+                node = (photosWithTag, allPhotos) -> left.evaluate(photosWithTag, allPhotos)
+                        .andNot(subtracted.evaluate(photosWithTag, allPhotos));
+            } else {
+                node = (photosWithTag, allPhotos) -> left.evaluate(photosWithTag, allPhotos)
+                        .and(right.evaluate(photosWithTag, allPhotos));
+            }
+        }
+        return node;
+    }
+
+    /**
+     * notExpr := NOT notExpr | "(" orExpr ")" | tag
+     */
+    private Node parseNot() throws ParseException {
+        if (next == tokens.size()) throw error("Query ends unexpectedly");
+        String token = tokens.get(next);
+        if (token.equals("NOT")) {
+            next++;
+            return new Not(parseNot());
+        } else if (token.equals("(")) {
+            next++;
+            Node node = parseOr();
+            if (!peek(")")) throw error("Missing \")\"");
+            next++;
+            return node;
+        } else if (token.equals(")") || token.equals("AND") || token.equals("OR")) {
+            throw error("Unexpected \"" + token + "\"");
+        }
+        next++;
+        // Quoted tags keep their quotes as a token so they are never mistaken for keywords
+        String tag = token.startsWith("\"") ? token.substring(1, token.length() - 1) : token;
+        return (photosWithTag, allPhotos) -> photosWithTag.apply(tag);
+    }
+
+    /**
+     * @return true if the next token is the given unquoted keyword or parenthesis
+     */
+    private boolean peek(String token) {
+        return next < tokens.size() && tokens.get(next).equals(token);
+    }
+
+    /**
+     * @return a ParseException with message, positioned at the next token
+     */
+    private ParseException error(String message) {
+        int offset = next < offsets.size() ? offsets.get(next) : offsets.get(offsets.size() - 1);
+        return new ParseException(message, offset);
+    }
+
+    /**
+     * Splits expression into parentheses, quoted tags and words.
+     */
+    private void tokenize(String expression) throws ParseException {
+        int i = 0;
+        while (i < expression.length()) {
+            char c = expression.charAt(i);
+            int start = i;
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            } else if (c == '(' || c == ')') {
+                i++;
+            } else if (c == '"') {
+                i = expression.indexOf('"', i + 1) + 1;
+                if (i == 0) throw new ParseException("Missing closing quote", start);
+            } else {
+                while (i < expression.length() && !Character.isWhitespace(expression.charAt(i))
+                        && "()\"".indexOf(expression.charAt(i)) < 0) {
+                    i++;
+                }
+            }
+            tokens.add(expression.substring(start, i));
+            offsets.add(start);
+        }
+    }
+}
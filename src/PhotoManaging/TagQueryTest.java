@@ -0,0 +1,76 @@
+package PhotoManaging;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+public class TagQueryTest extends TestCase {
+
+    /* Photos 0-9, where beach is 0-5, 2017 is 0 and 1, 2018 is 2-3, blurry is 1 and 3, and "new york" is 8 */
+    private HashMap<String, PhotoBitmap> tags = new HashMap<>();
+    private PhotoBitmap allPhotos = new PhotoBitmap();
+
+    public TagQueryTest() {
+        for (int i = 0; i < 10; i++) allPhotos.add(i);
+        tags.put("beach", bitmapOf(0, 1, 2, 3, 4, 5));
+        tags.put("2017", bitmapOf(0, 1));
+        tags.put("2018", bitmapOf(2, 3));
+        tags.put("blurry", bitmapOf(1, 3));
+        tags.put("new york", bitmapOf(8));
+    }
+
+    private static PhotoBitmap bitmapOf(int... ordinals) {
+        PhotoBitmap bitmap = new PhotoBitmap();
+        for (int ordinal : ordinals) bitmap.add(ordinal);
+        return bitmap;
+    }
+
+    private String evaluate(String expression) throws ParseException {
+        ArrayList<Integer> ordinals = new ArrayList<>();
+        new TagQuery(expression).evaluate(tags::get, allPhotos).forEach(ordinals::add);
+        return ordinals.toString();
+    }
+
+    // Testing of TagQuery evaluation
+
+    @Test
+    public void testSingleTag() throws Exception {
+        assertEquals("[0, 1]", evaluate("2017"));
+        assertEquals("[]", evaluate("missing"));
+    }
+
+    @Test
+    public void testPrecedence() throws Exception {
+        assertEquals("[0, 2]", evaluate("beach AND (2017 OR 2018) AND NOT blurry"));
+        assertEquals("[0, 1, 2]", evaluate("2017 OR 2018 AND NOT blurry"));
+    }
+
+    @Test
+    public void testNot() throws Exception {
+        assertEquals("[6, 7, 8, 9]", evaluate("NOT beach"));
+        assertEquals("[0, 2, 4, 5]", evaluate("beach NOT blurry"));
+    }
+
+    @Test
+    public void testQuotedTag() throws Exception {
+        assertEquals("[8]", evaluate("\"new york\" OR 2019"));
+    }
+
+    // Testing of TagQuery parse errors
+
+    @Test
+    public void testMalformed() {
+        String[] malformed = {"", "beach AND", "(beach", "beach)", "OR beach", "\"beach"};
+        for (String expression : malformed) {
+            try {
+                new TagQuery(expression);
+                fail("Parsed " + expression);
+            } catch (ParseException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package PhotoManaging;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+
+/**
+ * A TempDirectories which gives tests a scratch copy of a fixture directory, so the tracked fixtures are never
+ * changed, and deletes each scratch directory when the test is done with it.
+ */
+class TempDirectories {
+
+    /**
+     * Copies every file and directory within fixture into a new temporary directory.
+     *
+     * @param fixture the directory to copy
+     * @return the copy
+     * @throws IOException if the copy cannot be made
+     */
+    static Path copyOf(Path fixture) throws IOException {
+        Path copy = Files.createTempDirectory(fixture.getFileName().toString());
+        Files.walkFileTree(fixture, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attributes) throws IOException {
+                Files.createDirectories(copy.resolve(fixture.relativize(dir).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                Files.copy(file, copy.resolve(fixture.relativize(file).toString()));
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        return copy;
+    }
+
+    /**
+     * Deletes root and everything within it, closing any log file within it left open by a JournalWriter.
+     * Does nothing if root is null or already gone.
+     *
+     * @param root the directory to delete
+     * @throws IOException if a file cannot be deleted
+     */
+    static void delete(Path root) throws IOException {
+        if (root == null || !Files.exists(root)) return;
+        Files.walkFileTree(root, new SimpleFileVisitor<Path>() {
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+                JournalWriter.close(file);
+                Files.deleteIfExists(file);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                if (e instanceof NoSuchFileException) return FileVisitResult.CONTINUE;  // deleted in the meantime
+                throw e;
+            }
+
+            @Override
+            public FileVisitResult postVisitDirectory(Path dir, IOException e) throws IOException {
+                Files.deleteIfExists(dir);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+}
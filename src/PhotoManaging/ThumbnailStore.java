@@ -0,0 +1,206 @@
+package PhotoManaging;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * A ThumbnailStore which keeps small copies of photo files on disk, so each photo is decoded at full size at most
+ * once across runs of the program.
+ * <p>
+ * Each thumbnail is stored as a PNG under ~/.photomanager/thumbnails, named after a hash of the photo's file key,
+ * file size, modification time and the thumbnail size, so a photo that is edited or replaced gets a new thumbnail.
+ * The file key identifies the file itself rather than its path where the file system has one, as on Linux and macOS,
+ * so a photo renamed by a tag change keeps its thumbnail. Thumbnails not yet stored are decoded by ImageDecoder.
+ * <p>
+ * The store is kept under MAX_STORE_BYTES. Reading a thumbnail marks it as used, and once enough new thumbnails have
+ * been stored those used least recently are deleted on a background thread. Thumbnails left behind by photos that
+ * were deleted, edited or moved to another disk are never used again, so they are the first to go.
+ */
+public class ThumbnailStore {
+
+    /* The directory every thumbnail is stored in */
+    private static final Path STORE = Paths.get(System.getProperty("user.home"), ".photomanager", "thumbnails");
+
+    /* The most bytes of thumbnails kept in the store */
+    static final long MAX_STORE_BYTES = 256L << 20;
+
+    /* How many bytes of thumbnails are stored between checks of the size of the store */
+    static final long TRIM_EVERY_BYTES = 16L << 20;
+
+    /* How old the last use of a thumbnail must be before reading it marks it as used again */
+    private static final long TOUCH_AFTER_MILLIS = TimeUnit.DAYS.toMillis(1);
+
+    /* The number of bytes of thumbnails stored since the size of the store was last checked */
+    private static final AtomicLong storedSinceTrim = new AtomicLong(TRIM_EVERY_BYTES);
+
+    /* The thread on which the store is trimmed */
+    private static final ExecutorService TRIMMER = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "Thumbnail store trimmer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    /**
+     * Returns a thumbnail of photo no larger than size by size, reading it from the store if it was made before and
+     * otherwise decoding photo and storing the result.
+     *
+     * @param photo the photo file to make a thumbnail of
+     * @param size  the largest width and height of the thumbnail, in pixels
+     * @return the thumbnail, or null if photo is not an image that can be decoded
+     * @throws IOException if photo cannot be read
+     */
+    public static BufferedImage thumbnail(Path photo, int size) throws IOException {
+        Path stored = storedPath(photo, size);
+        if (Files.exists(stored)) {
+            BufferedImage thumbnail = ImageIO.read(stored.toFile());
+            if (thumbnail != null) {
+                markUsed(stored);
+                return thumbnail;
+            }
+        }
+
+        BufferedImage thumbnail = ImageDecoder.decode(photo, size, size);
+        if (thumbnail != null) {
+            try {
+                store(thumbnail, stored);
+                // The first thumbnail stored in a run checks the store, as may any after enough more are stored
+                if (storedSinceTrim.addAndGet(Files.size(stored)) >= TRIM_EVERY_BYTES) {
+                    storedSinceTrim.set(0);
+                    TRIMMER.execute(() -> trimQuietly(STORE, MAX_STORE_BYTES));
+                }
+            } catch (IOException e) {
+                e.printStackTrace();    // the thumbnail is still usable, it is just made again next time
+            }
+        }
+        return thumbnail;
+    }
+
+    /**
+     * Writes thumbnail to a temporary file which then replaces stored, so a half written thumbnail is never read.
+     */
+    private static void store(BufferedImage thumbnail, Path stored) throws IOException {
+        Files.createDirectories(stored.getParent());
+        Path temp = Files.createTempFile(stored.getParent(), "thumbnail", ".tmp");
+        try {
+            ImageIO.write(thumbnail, "png", temp.toFile());
+            try {
+                Files.move(temp, stored, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, stored, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Deletes the thumbnails used least recently from store until it holds no more than maxBytes, leaving it three
+     * quarters full so it is not trimmed again at once.
+     *
+     * @param store    the directory of thumbnails
+     * @param maxBytes the most bytes of thumbnails to keep
+     * @throws IOException if the store cannot be listed
+     */
+    static void trim(Path store, long maxBytes) throws IOException {
+        if (!Files.isDirectory(store)) return;
+        ArrayList<Path> thumbnails = new ArrayList<>();
+        HashMap<Path, BasicFileAttributes> attributesByThumbnail = new HashMap<>();
+        long total = 0;
+        try (Stream<Path> files = Files.walk(store)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (!file.getFileName().toString().endsWith(".png")) continue;
+                try {
+                    BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                    thumbnails.add(file);
+                    attributesByThumbnail.put(file, attributes);
+                    total += attributes.size();
+                } catch (NoSuchFileException e) {
+                    // deleted by another run of the program
+                }
+            }
+        }
+        if (total <= maxBytes) return;
+
+        thumbnails.sort(Comparator.comparing(file -> attributesByThumbnail.get(file).lastModifiedTime()));
+        for (Path thumbnail : thumbnails) {
+            if (total <= maxBytes / 4 * 3) break;
+            Files.deleteIfExists(thumbnail);
+            total -= attributesByThumbnail.get(thumbnail).size();
+        }
+    }
+
+    /**
+     * Trims store to maxBytes, reporting rather than throwing any error.
+     */
+    private static void trimQuietly(Path store, long maxBytes) {
+        try {
+            trim(store, maxBytes);
+        } catch (IOException | UncheckedIOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Marks the thumbnail in stored as just used, by its modification time, unless it was marked recently.
+     */
+    private static void markUsed(Path stored) {
+        try {
+            long now = System.currentTimeMillis();
+            if (now - Files.getLastModifiedTime(stored).toMillis() > TOUCH_AFTER_MILLIS) {
+                Files.setLastModifiedTime(stored, FileTime.fromMillis(now));
+            }
+        } catch (IOException e) {
+            // it is only trimmed sooner
+        }
+    }
+
+    /**
+     * @return the file the thumbnail of photo at size is stored in
+     */
+    private static Path storedPath(Path photo, int size) throws IOException {
+        BasicFileAttributes attributes = Files.readAttributes(photo, BasicFileAttributes.class);
+        // The file key stays the same when the photo is renamed, but not every file system has one
+        Object file = attributes.fileKey() != null ? attributes.fileKey() : photo.toAbsolutePath().normalize();
+        String key = file + "\t" + attributes.size() + "\t" + attributes.lastModifiedTime().toMillis() + "\t" + size;
+        String hash = sha1(key);
+        // Spread thumbnails over subdirectories so no one directory grows too large
+        return STORE.resolve(hash.substring(0, 2)).resolve(hash + ".png");
+    }
+
+    /**
+     * @return the SHA-1 hash of text as a hexadecimal string
+     */
+    private static String sha1(String text) {
+        try {
+            StringBuilder hex = new StringBuilder();
+            for (byte b : MessageDigest.getInstance("SHA-1").digest(text.getBytes(StandardCharsets.UTF_8))) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);    // every Java platform supports SHA-1
+        }
+    }
+}
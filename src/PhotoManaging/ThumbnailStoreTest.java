@@ -0,0 +1,40 @@
+package PhotoManaging;
+
+import junit.framework.TestCase;
+import org.junit.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+
+public class ThumbnailStoreTest extends TestCase {
+
+    private Path store;
+
+    @Override
+    protected void setUp() throws Exception {
+        store = Files.createTempDirectory("ThumbnailStoreTest");
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        TempDirectories.delete(store);
+    }
+
+    @Test
+    public void testTrimDeletesLeastRecentlyUsed() throws Exception {
+        Path sub = Files.createDirectory(store.resolve("ab"));
+        for (int i = 0; i < 4; i++) {
+            Path thumbnail = Files.write(sub.resolve(i + ".png"), new byte[100]);
+            Files.setLastModifiedTime(thumbnail, FileTime.fromMillis(1000L * (i + 1)));
+        }
+        ThumbnailStore.trim(store, 400);
+        assertEquals(4, sub.toFile().list().length);    // not over the limit
+
+        ThumbnailStore.trim(store, 300);
+        assertFalse(Files.exists(sub.resolve("0.png")));
+        assertFalse(Files.exists(sub.resolve("1.png")));
+        assertTrue(Files.exists(sub.resolve("2.png")));
+        assertTrue(Files.exists(sub.resolve("3.png")));
+    }
+}
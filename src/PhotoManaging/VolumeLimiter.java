@@ -0,0 +1,94 @@
+package PhotoManaging;
+
+import java.io.IOException;
+import java.nio.file.FileStore;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+
+/**
+ * A VolumeLimiter which limits how many file moves touch each volume at once, so that moving many photos between
+ * several disks keeps every disk busy without any one of them thrashing between too many files.
+ * <p>
+ * A move holds a permit of the volume it moves from and of the volume it moves to. The permits are always taken in
+ * the order the volumes were first seen, so two moves between the same pair of volumes cannot each hold one permit
+ * while waiting for the other.
+ */
+class VolumeLimiter {
+
+    /* How many moves may touch one volume at once */
+    private final int movesPerVolume;
+
+    /* The Semaphore of each volume seen so far */
+    private final HashMap<FileStore, Semaphore> volumes = new HashMap<>();
+
+    /* The order each volume in volumes was first seen in */
+    private final HashMap<FileStore, Integer> order = new HashMap<>();
+
+    /**
+     * Initialize a new VolumeLimiter.
+     *
+     * @param movesPerVolume see above instance parameter
+     */
+    VolumeLimiter(int movesPerVolume) {
+        this.movesPerVolume = movesPerVolume;
+    }
+
+    /**
+     * Waits until a move from source to directory may start, and returns the permits it holds, which must be passed
+     * to release once the move ends.
+     *
+     * @param source    the file to be moved
+     * @param directory the existing directory it is moved into
+     * @return the permits held by the move
+     * @throws IOException if the volume of either path cannot be found
+     */
+    List<Semaphore> acquire(Path source, Path directory) throws IOException {
+        FileStore from = Files.getFileStore(source);
+        FileStore to = Files.getFileStore(directory);
+        List<Semaphore> permits = new ArrayList<>();
+        synchronized (this) {
+            permits.add(semaphore(from));
+            if (!from.equals(to)) {
+                if (order.get(from) < orderOf(to)) {
+                    permits.add(semaphore(to));
+                } else {
+                    permits.add(0, semaphore(to));
+                }
+            }
+        }
+        for (Semaphore permit : permits) {
+            permit.acquireUninterruptibly();
+        }
+        return permits;
+    }
+
+    /**
+     * Gives back the permits of a move which has ended.
+     *
+     * @param permits the permits returned by acquire
+     */
+    void release(List<Semaphore> permits) {
+        for (Semaphore permit : permits) {
+            permit.release();
+        }
+    }
+
+    /**
+     * @return the Semaphore of volume, making one if volume has not been seen before
+     */
+    private Semaphore semaphore(FileStore volume) {
+        orderOf(volume);
+        return volumes.computeIfAbsent(volume, v -> new Semaphore(movesPerVolume));
+    }
+
+    /**
+     * @return the order volume was first seen in
+     */
+    private int orderOf(FileStore volume) {
+        return order.computeIfAbsent(volume, v -> order.size());
+    }
+}